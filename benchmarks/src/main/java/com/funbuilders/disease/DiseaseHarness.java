@@ -0,0 +1,271 @@
+package com.funbuilders.disease;
+
+import com.funbuilders.disease.standin.FakePlayer;
+import com.funbuilders.disease.standin.FakeServer;
+import com.funbuilders.disease.standin.FakeWorld;
+import com.funbuilders.disease.standin.FoliaPlayer;
+import com.funbuilders.disease.standin.FoliaServer;
+import com.funbuilders.disease.standin.Proxies;
+import org.bukkit.command.Command;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Enables a real {@link Disease} instance against {@link FakeServer} with a generated config of
+ * the requested size, and exposes the package-private hot paths to benchmarks and simulations.
+ * A synced harness connects the plugin over a {@link LoopbackTransport} to a second server, a bare
+ * {@link DiseaseSync} that players switch to and come back from.
+ */
+public final class DiseaseHarness implements AutoCloseable {
+    private static final String[] TREATMENTS = {"herbal_tea", "activated_charcoal", "antibiotics"};
+    private static final String[] FOODS = {"APPLE", "BREAD", "CARROT", "POTATO", "COOKIE", "MELON_SLICE",
+            "COD", "SALMON", "SPIDER_EYE", "PUFFERFISH", "BEETROOT", "SWEET_BERRIES"};
+
+    private final FakeServer server;
+    private final FakeWorld world;
+    private final Path dataFolder;
+    private final Disease plugin;
+    private final Command command;
+    private final List<String> diseaseNames;
+    private final List<FakePlayer> players = new ArrayList<>();
+    private final Map<EntityType, Entity> attackers = new EnumMap<>(EntityType.class);
+    private final DiseaseSync peer;
+    // Players on the other server, longest there first
+    private final ArrayDeque<FakePlayer> away = new ArrayDeque<>();
+
+    private DiseaseHarness(int playerCount, int diseaseCount, long seed, boolean regionized, boolean synced)
+            throws IOException {
+        server = FakeServer.install();
+        world = server.createWorld("world");
+        dataFolder = Files.createTempDirectory("disease-harness");
+        diseaseNames = writeConfig(dataFolder.resolve("config.yml"), diseaseCount);
+
+        // Players are spread over a square of roughly 8 blocks per player, half of it in cold chunks
+        Random random = new Random(seed);
+        double side = Math.max(16, Math.sqrt(playerCount) * 8);
+        for (int i = 0; i < playerCount; i++) {
+            players.add(server.join("player" + i, world,
+                    random.nextDouble() * side - side / 2, 64, random.nextDouble() * side - side / 2));
+        }
+
+        plugin = new Disease(new JavaPluginLoader(server.handle()),
+                new PluginDescriptionFile("DiseasesPlugin", "1.0", Disease.class.getName()),
+                dataFolder.toFile(), dataFolder.resolve("Disease.jar").toFile());
+        command = server.registerCommand("diseases", plugin);
+        // The plugin's own backends run on the stand-in schedulers
+        plugin.useScheduler(regionized ? new FoliaTaskScheduler(plugin, FoliaServer.class, FoliaPlayer.class)
+                : new BukkitTaskScheduler(plugin));
+        if (synced) {
+            String network = "harness-" + dataFolder.getFileName();
+            plugin.useSyncTransport(new LoopbackTransport(network));
+            peer = new DiseaseSync(new LoopbackTransport(network), new PassThrough(), 60_000L,
+                    Logger.getLogger("DiseaseHarness"));
+            peer.start();
+        } else {
+            peer = null;
+        }
+        plugin.onEnable();
+        // Lets the join-time loads scheduled by onEnable complete
+        tick();
+    }
+
+    public static DiseaseHarness start(int playerCount, int diseaseCount, long seed) {
+        return start(playerCount, diseaseCount, seed, false);
+    }
+
+    // regionized runs the plugin as on Folia, with player work spread over worker threads
+    public static DiseaseHarness start(int playerCount, int diseaseCount, long seed, boolean regionized) {
+        return start(playerCount, diseaseCount, seed, regionized, false);
+    }
+
+    public static DiseaseHarness start(int playerCount, int diseaseCount, long seed, boolean regionized, boolean synced) {
+        try {
+            return new DiseaseHarness(playerCount, diseaseCount, seed, regionized, synced);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Disease plugin() { return plugin; }
+    public FakeServer server() { return server; }
+    public FakeWorld world() { return world; }
+    public Command command() { return command; }
+    public List<FakePlayer> players() { return players; }
+    public List<String> diseaseNames() { return diseaseNames; }
+
+    public void tick() {
+        server.scheduler().tick();
+        server.regions().tick();
+    }
+
+    public void treat(Player player, ItemStack item) {
+        plugin.handleTreatment(player, item, EquipmentSlot.HAND);
+        plugin.drainIntents();
+    }
+
+    // The event handlers below are called the way the server dispatches the matching events
+
+    public FakePlayer join(String name, double x, double z) {
+        FakePlayer player = server.join(name, world, x, 64, z);
+        players.add(player);
+        plugin.onPlayerJoin(new PlayerJoinEvent(player.handle(), null));
+        return player;
+    }
+
+    public void quit(FakePlayer player) {
+        plugin.onPlayerQuit(new PlayerQuitEvent(player.handle(), null));
+        server.quit(player);
+        players.remove(player);
+    }
+
+    // The plugin hands the player off as they leave; the other server picks them up on its next tick
+    public void switchAway(FakePlayer player) {
+        quit(player);
+        away.addLast(player);
+    }
+
+    public void rejoin(FakePlayer player, double x, double z) {
+        FakePlayer back = server.join(player.getUniqueId(), player.getName(), world, x, 64, z);
+        players.add(back);
+        plugin.onPlayerJoin(new PlayerJoinEvent(back.handle(), null));
+    }
+
+    // The other server's side of a switch back: it takes the player over and hands them straight back,
+    // so the plugin finds them on rejoin. Without a hand-off it has nothing to send and the plugin loads
+    // the player from storage. Returns null if nobody is away
+    public FakePlayer sendBack() {
+        FakePlayer player = away.pollFirst();
+        if (player == null) return null;
+        long now = System.currentTimeMillis();
+        UUID playerId = player.getUniqueId();
+        Map<String, Long> diseases = peer.handOff(playerId, now);
+        if (diseases != null) {
+            peer.established(playerId, diseases);
+        }
+        peer.left(playerId, diseases);
+        peer.tick(now);
+        return player;
+    }
+
+    // Receives what the plugin sends; not part of the plugin's tick
+    public void tickPeer() {
+        if (peer != null) {
+            peer.tick(System.currentTimeMillis());
+        }
+    }
+
+    public int away() {
+        return away.size();
+    }
+
+    public void eat(Player player, ItemStack item) {
+        plugin.onItemConsume(new PlayerItemConsumeEvent(player, item, EquipmentSlot.HAND));
+    }
+
+    public void hit(Player player, EntityType attacker) {
+        Entity damager = attackers.computeIfAbsent(attacker, type -> {
+            Map<String, Proxies.Answer> answers = Proxies.answers();
+            answers.put("getType/0", Proxies.value(type));
+            return Proxies.create(Entity.class, answers);
+        });
+        plugin.onEntityDamage(new EntityDamageByEntityEvent(damager, player, EntityDamageEvent.DamageCause.ENTITY_ATTACK, 1.0));
+    }
+
+    // Death clears every effect, as the server does, before the player comes back
+    public void respawn(FakePlayer player) {
+        player.clearEffects();
+        plugin.onPlayerRespawn(new PlayerRespawnEvent(player.handle(), player.handle().getLocation(), false, false));
+    }
+
+    public Map<String, Integer> stateSizes() {
+        return plugin.stateSizes();
+    }
+
+    public boolean checkEnvironment(Player player) {
+        return plugin.checkEnvironmentalTriggers(player);
+    }
+
+    public ItemStack medicine(String id) {
+        return plugin.getCustomItem(id);
+    }
+
+    public String treatmentOf(String disease) {
+        return plugin.getConfig().getString("diseases." + disease + ".treatment_item");
+    }
+
+    @Override
+    public void close() {
+        plugin.onDisable();
+        if (peer != null) {
+            peer.close();
+        }
+        server.reset();
+        try (var files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // The shipped config without the journal, plus synthetic diseases, each with its own effects, treatment and food trigger
+    private static List<String> writeConfig(Path file, int diseaseCount) throws IOException {
+        YamlConfiguration config;
+        try (InputStream defaults = Disease.class.getClassLoader().getResourceAsStream("config.yml")) {
+            config = YamlConfiguration.loadConfiguration(new InputStreamReader(Objects.requireNonNull(defaults), StandardCharsets.UTF_8));
+        }
+        // Appends and segment rotation to disk would be measured along with whatever raised the events
+        config.set("journal.enabled", false);
+        List<String> names = new ArrayList<>(Objects.requireNonNull(config.getConfigurationSection("diseases")).getKeys(false));
+        for (int i = names.size(); i < diseaseCount; i++) {
+            String name = "synthetic_" + i;
+            String path = "diseases." + name;
+            config.set(path + ".effects", List.of("SLOW:30:0", "WEAKNESS:20:" + (i % 2)));
+            config.set(path + ".start_message", "&cSynthetic disease " + i);
+            config.set(path + ".cure_message", "&aCured of synthetic disease " + i);
+            config.set(path + ".treatment_item", TREATMENTS[i % TREATMENTS.length]);
+            config.set(path + ".triggers.food.materials", List.of(FOODS[i % FOODS.length]));
+            config.set(path + ".triggers.food.chance", 0.05);
+            names.add(name);
+        }
+        Files.writeString(file, config.saveToString(), StandardCharsets.UTF_8);
+        return List.copyOf(names);
+    }
+
+    // Players only pass through the other server, so it never has changes of its own to apply
+    private static final class PassThrough implements DiseaseSync.StateSink {
+        @Override
+        public void infected(UUID playerId, String disease, long infectedAt) {
+        }
+
+        @Override
+        public void cured(UUID playerId, String disease) {
+        }
+
+        @Override
+        public Map<String, Long> current(UUID playerId) {
+            return Map.of();
+        }
+    }
+}
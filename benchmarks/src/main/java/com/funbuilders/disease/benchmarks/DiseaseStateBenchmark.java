@@ -0,0 +1,64 @@
+package com.funbuilders.disease.benchmarks;
+
+import com.funbuilders.disease.Disease;
+import com.funbuilders.disease.DiseaseHarness;
+import com.funbuilders.disease.standin.FakePlayer;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code hasDisease} lookups and an infect/cure round trip through {@code applyDisease}
+ * and {@code cureDisease}, with half of the players already carrying a disease.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiseaseStateBenchmark {
+    @Param({"10", "500", "5000"})
+    public int players;
+
+    @Param({"3", "20", "100"})
+    public int diseases;
+
+    private DiseaseHarness harness;
+    private Disease plugin;
+    private Player[] handles;
+    private String[] names;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        harness = DiseaseHarness.start(players, diseases, 42L);
+        plugin = harness.plugin();
+        handles = harness.players().stream().map(FakePlayer::handle).toArray(Player[]::new);
+        names = harness.diseaseNames().toArray(new String[0]);
+        for (int i = 0; i < handles.length; i += 2) {
+            plugin.applyDisease(handles[i], names[i % names.length]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public boolean hasDisease() {
+        int i = cursor++;
+        return plugin.hasDisease(handles[Math.floorMod(i, handles.length)], names[Math.floorMod(i, names.length)]);
+    }
+
+    @Benchmark
+    public void applyAndCure() {
+        int i = cursor++;
+        Player player = handles[Math.floorMod(i, handles.length)];
+        String disease = names[Math.floorMod(i * 31, names.length)];
+        plugin.applyDisease(player, disease);
+        plugin.cureDisease(player, disease);
+    }
+}
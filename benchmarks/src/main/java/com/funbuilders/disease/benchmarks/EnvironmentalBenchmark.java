@@ -0,0 +1,66 @@
+package com.funbuilders.disease.benchmarks;
+
+import com.funbuilders.disease.DiseaseHarness;
+import com.funbuilders.disease.standin.FakePlayer;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code checkEnvironmentalTriggers} for players with cough_cold, a third of them in water and
+ * about half standing in cold chunks, plus one full plugin tick with every task running, on the
+ * classic scheduler and on a regionized one that spreads player work over worker threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvironmentalBenchmark {
+    @Param({"10", "500", "5000"})
+    public int players;
+
+    @Param({"3", "20", "100"})
+    public int diseases;
+
+    @Param({"classic", "regions"})
+    public String scheduler;
+
+    private DiseaseHarness harness;
+    private Player[] handles;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        harness = DiseaseHarness.start(players, diseases, 42L, "regions".equals(scheduler));
+        handles = harness.players().stream().map(FakePlayer::handle).toArray(Player[]::new);
+        for (int i = 0; i < handles.length; i++) {
+            harness.players().get(i).setInWater(i % 3 == 0);
+            harness.plugin().applyDisease(handles[i], "cough_cold");
+        }
+    }
+
+    // Coughs raised by the checks are queued for the cough scheduler; one tick sends them off so the
+    // queue does not carry over into the next iteration
+    @TearDown(Level.Iteration)
+    public void flushCoughs() {
+        harness.tick();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public boolean checkEnvironmentalTriggers() {
+        return harness.checkEnvironment(handles[Math.floorMod(cursor++, handles.length)]);
+    }
+
+    @Benchmark
+    public void serverTick() {
+        harness.tick();
+    }
+}
@@ -0,0 +1,49 @@
+package com.funbuilders.disease.benchmarks;
+
+import com.funbuilders.disease.DiseaseHarness;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code onTabComplete} for the player-name and disease-name arguments of /diseases infect.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabCompleteBenchmark {
+    @Param({"10", "500", "5000"})
+    public int players;
+
+    @Param({"3", "20", "100"})
+    public int diseases;
+
+    private DiseaseHarness harness;
+    private CommandSender sender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        harness = DiseaseHarness.start(players, diseases, 42L);
+        sender = harness.server().console();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public List<String> playerName() {
+        return harness.plugin().onTabComplete(sender, harness.command(), "diseases", new String[]{"infect", "player1"});
+    }
+
+    @Benchmark
+    public List<String> diseaseName() {
+        return harness.plugin().onTabComplete(sender, harness.command(), "diseases", new String[]{"infect", "player1", "syn"});
+    }
+}
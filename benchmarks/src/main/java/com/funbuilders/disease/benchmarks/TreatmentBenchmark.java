@@ -0,0 +1,67 @@
+package com.funbuilders.disease.benchmarks;
+
+import com.funbuilders.disease.DiseaseHarness;
+import com.funbuilders.disease.standin.FakePlayer;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code handleTreatment} for a medicine that cures the player, and for ordinary food,
+ * which is what almost every consume event looks like.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreatmentBenchmark {
+    @Param({"10", "500", "5000"})
+    public int players;
+
+    @Param({"3", "20", "100"})
+    public int diseases;
+
+    private DiseaseHarness harness;
+    private Player[] handles;
+    private String[] names;
+    private ItemStack[] medicines;
+    private ItemStack food;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        harness = DiseaseHarness.start(players, diseases, 42L);
+        handles = harness.players().stream().map(FakePlayer::handle).toArray(Player[]::new);
+        names = harness.diseaseNames().toArray(new String[0]);
+        medicines = new ItemStack[names.length];
+        for (int i = 0; i < names.length; i++) {
+            medicines[i] = harness.medicine(harness.treatmentOf(names[i]));
+        }
+        food = new ItemStack(Material.BREAD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Benchmark
+    public void infectAndTreat() {
+        int i = cursor++;
+        Player player = handles[Math.floorMod(i, handles.length)];
+        int disease = Math.floorMod(i, names.length);
+        harness.plugin().applyDisease(player, names[disease]);
+        medicines[disease].setAmount(64);
+        harness.treat(player, medicines[disease]);
+    }
+
+    @Benchmark
+    public void ordinaryFood() {
+        harness.treat(handles[Math.floorMod(cursor++, handles.length)], food);
+    }
+}
@@ -0,0 +1,264 @@
+package com.funbuilders.disease.simulation;
+
+import com.funbuilders.disease.DiseaseHarness;
+import com.funbuilders.disease.standin.FakePlayer;
+import com.funbuilders.disease.standin.FakeRegionScheduler;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load test: enables the plugin against the stand-in server and drives synthetic players
+ * through its real event handlers and tasks, tick by tick. Players get hit by mobs, eat raw and
+ * cooked food, swim, wander in and out of cold chunks, take medicine, die and log in and out.
+ * Every simulated minute it prints the plugin's cost per tick (p50, p99, max), what it allocated
+ * per simulated second and the size of every per-player structure of the plugin; at the end, how
+ * far each structure grew. What the players do is decided before each tick is measured, so cost
+ * and allocation cover only the event dispatch and the tick itself, on the driving thread and the
+ * region workers.
+ * <pre>java -cp target/benchmarks.jar com.funbuilders.disease.simulation.LoadSimulator --players 2000 --minutes 60</pre>
+ * Options: {@code --players}, {@code --diseases}, {@code --minutes}, {@code --warmup} (minutes run
+ * before measuring), {@code --seed}, {@code --regions} for the regionized scheduler,
+ * {@code --sync}, which connects a second server that half of the leaving players switch to and
+ * half of the joining ones come back from, and {@code --realtime}, which paces ticks at 20 per
+ * second. Stages and recovery follow the wall clock, so only a real-time run takes players
+ * through them.
+ */
+public final class LoadSimulator {
+    private static final int TICKS_PER_MINUTE = 20 * 60;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // One draw per player and tick out of this many decides what the player does
+    private static final int ACTION_RANGE = 24_000;
+    private static final int HIT_ZOMBIE = 12;             // about every 100 seconds
+    private static final int HIT_SKELETON = HIT_ZOMBIE + 12;
+    private static final int EAT = HIT_SKELETON + 20;     // about once a minute
+    private static final int TAKE_MEDICINE = EAT + 10;
+    private static final int TOGGLE_SWIM = TAKE_MEDICINE + 40;
+    private static final int DIE = TOGGLE_SWIM + 1;       // about every 20 minutes
+    private static final long SESSION_TICKS = 30L * TICKS_PER_MINUTE;
+    private static final Material[] FOODS = {Material.BREAD, Material.APPLE, Material.CARROT, Material.COOKED_BEEF,
+            Material.CHICKEN, Material.BEEF, Material.ROTTEN_FLESH};
+
+    private final DiseaseHarness harness;
+    private final Random random;
+    private final boolean synced;
+    private final double side;
+    private final ItemStack[] foods;
+    private final ItemStack[] medicines;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // What the players do this tick, decided before it is measured
+    private final List<Runnable> events = new ArrayList<>();
+    private long allocated;
+    private int joined;
+
+    private LoadSimulator(DiseaseHarness harness, long seed, boolean synced) {
+        this.harness = harness;
+        this.random = new Random(seed);
+        this.synced = synced;
+        this.side = Math.max(16, Math.sqrt(harness.players().size()) * 8);
+        this.foods = Arrays.stream(FOODS).map(ItemStack::new).toArray(ItemStack[]::new);
+        this.medicines = harness.diseaseNames().stream()
+                .map(harness::treatmentOf)
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(harness::medicine)
+                .filter(Objects::nonNull)
+                .toArray(ItemStack[]::new);
+        this.joined = harness.players().size();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        int players = Integer.parseInt(options.getOrDefault("players", "2000"));
+        int diseases = Integer.parseInt(options.getOrDefault("diseases", "20"));
+        int minutes = Integer.parseInt(options.getOrDefault("minutes", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "1"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        boolean regions = options.containsKey("regions");
+        boolean synced = options.containsKey("sync");
+        boolean realtime = options.containsKey("realtime");
+
+        System.out.println("Simulating " + players + " players, " + diseases + " diseases, " + minutes + " minutes on the "
+                + (regions ? "regionized" : "classic") + " scheduler" + (synced ? " with server sync" : "")
+                + (realtime ? " in real time" : ""));
+        try (DiseaseHarness harness = DiseaseHarness.start(players, diseases, seed, regions, synced)) {
+            new LoadSimulator(harness, seed, synced).run(warmup, minutes, realtime);
+        }
+    }
+
+    private void run(int warmupMinutes, int minutes, boolean realtime) throws InterruptedException {
+        for (int i = 0; i < warmupMinutes * TICKS_PER_MINUTE; i++) {
+            step(i);
+        }
+
+        long[] all = new long[minutes * TICKS_PER_MINUTE];
+        Map<String, Integer> first = null;
+        Map<String, Integer> peak = new LinkedHashMap<>();
+        Map<String, Integer> last = Map.of();
+        boolean header = true;
+        for (int minute = 0; minute < minutes; minute++) {
+            long workersBefore = workerAllocatedBytes();
+            allocated = 0;
+            int offset = minute * TICKS_PER_MINUTE;
+            for (int i = 0; i < TICKS_PER_MINUTE; i++) {
+                long start = System.nanoTime();
+                all[offset + i] = step(offset + i);
+                long spent = System.nanoTime() - start;
+                if (realtime && spent < TICK_NANOS) {
+                    TimeUnit.NANOSECONDS.sleep(TICK_NANOS - spent);
+                }
+            }
+            long allocatedBytes = allocated + workerAllocatedBytes() - workersBefore;
+
+            last = harness.stateSizes();
+            if (first == null) first = last;
+            last.forEach((name, size) -> peak.merge(name, size, Math::max));
+            if (header) {
+                System.out.println(String.format("%6s %6s %9s %9s %9s %14s", "minute", "online", "p50 us", "p99 us", "max us", "alloc MB/sim s")
+                        + " " + String.join(" ", last.keySet()));
+                header = false;
+            }
+            long[] window = Arrays.copyOfRange(all, offset, offset + TICKS_PER_MINUTE);
+            System.out.println(String.format("%6d %6d %9.1f %9.1f %9.1f %14.2f", minute + 1, harness.players().size(),
+                    micros(percentile(window, 0.50)), micros(percentile(window, 0.99)), micros(percentile(window, 1.0)),
+                    allocatedBytes / 60.0 / (1 << 20)) + " " + format(last));
+        }
+        if (first == null) return;
+
+        System.out.println();
+        System.out.println(String.format("Overall: p50 %.1f us, p99 %.1f us, max %.1f us per tick",
+                micros(percentile(all, 0.50)), micros(percentile(all, 0.99)), micros(percentile(all, 1.0))));
+        System.out.println("Growth from the first to the last minute (peak):");
+        for (Map.Entry<String, Integer> entry : last.entrySet()) {
+            String name = entry.getKey();
+            System.out.println(String.format("  %-20s %8d -> %8d (%d)", name, first.get(name), entry.getValue(), peak.get(name)));
+        }
+    }
+
+    // Returns how long the plugin took: dispatching the tick's events and the tick itself
+    private long step(int tick) {
+        script(tick);
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (Runnable event : events) {
+            event.run();
+        }
+        harness.tick();
+        long elapsed = System.nanoTime() - start;
+        allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        events.clear();
+        return elapsed;
+    }
+
+    // Moving, swimming and the other server only change the stand-ins; everything that reaches the plugin is
+    // queued as an event
+    private void script(int tick) {
+        harness.tickPeer();
+        List<FakePlayer> players = harness.players();
+        for (int i = 0; i < players.size(); i++) {
+            FakePlayer player = players.get(i);
+            if (i % 20 == tick % 20) {
+                wander(player);
+            }
+            act(player, random.nextInt(ACTION_RANGE));
+        }
+        // Ends sessions at random so an average one lasts SESSION_TICKS, and keeps the server full
+        for (int i = players.size() - 1; i >= 0; i--) {
+            if (random.nextLong(SESSION_TICKS) == 0) {
+                FakePlayer leaving = players.get(i);
+                double x = randomCoordinate();
+                double z = randomCoordinate();
+                if (synced && random.nextBoolean()) {
+                    events.add(() -> harness.switchAway(leaving));
+                } else {
+                    events.add(() -> harness.quit(leaving));
+                }
+                FakePlayer returning = synced && random.nextBoolean() ? harness.sendBack() : null;
+                if (returning != null) {
+                    events.add(() -> harness.rejoin(returning, x, z));
+                } else {
+                    String name = "player" + joined++;
+                    events.add(() -> harness.join(name, x, z));
+                }
+            }
+        }
+    }
+
+    private void act(FakePlayer player, int action) {
+        if (action < HIT_ZOMBIE) {
+            events.add(() -> harness.hit(player.handle(), EntityType.ZOMBIE));
+        } else if (action < HIT_SKELETON) {
+            events.add(() -> harness.hit(player.handle(), EntityType.SKELETON));
+        } else if (action < EAT) {
+            ItemStack food = foods[random.nextInt(foods.length)];
+            events.add(() -> harness.eat(player.handle(), food));
+        } else if (action < TAKE_MEDICINE) {
+            if (medicines.length > 0) {
+                ItemStack medicine = medicines[random.nextInt(medicines.length)];
+                medicine.setAmount(64);
+                events.add(() -> harness.eat(player.handle(), medicine));
+            }
+        } else if (action < TOGGLE_SWIM) {
+            player.setInWater(random.nextBoolean());
+        } else if (action < DIE) {
+            events.add(() -> harness.respawn(player));
+        }
+    }
+
+    // Half of the square lies in cold chunks, so wandering players keep crossing into them and back
+    private void wander(FakePlayer player) {
+        double x = Math.max(-side / 2, Math.min(side / 2, player.getX() + random.nextDouble() * 8 - 4));
+        double z = Math.max(-side / 2, Math.min(side / 2, player.getZ() + random.nextDouble() * 8 - 4));
+        player.moveTo(x, player.getY(), z);
+    }
+
+    private double randomCoordinate() {
+        return random.nextDouble() * side - side / 2;
+    }
+
+    // The region workers of the regionized scheduler only ever run the plugin's tasks
+    private long workerAllocatedBytes() {
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null || !info.getThreadName().startsWith(FakeRegionScheduler.WORKER_NAME)) continue;
+            long bytes = threads.getThreadAllocatedBytes(info.getThreadId());
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    private static long percentile(long[] values, double fraction) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(fraction * (sorted.length - 1))];
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private static String format(Map<String, Integer> sizes) {
+        StringJoiner joiner = new StringJoiner(" ");
+        sizes.forEach((name, size) -> joiner.add(String.format("%" + name.length() + "d", size)));
+        return joiner.toString();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean flag = i + 1 == args.length || args[i + 1].startsWith("--");
+            options.put(name, flag ? "" : args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,44 @@
+package com.funbuilders.disease.standin;
+
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Item factory stand-in. Every item gets a plain meta with a map-backed persistent data
+ * container; cloning returns the same meta, which is enough for items the plugin only reads.
+ */
+final class FakeItems {
+    private FakeItems() {
+    }
+
+    static ItemFactory factory() {
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("getItemMeta/1", (proxy, args) -> meta());
+        answers.put("isApplicable/2", Proxies.value(true));
+        answers.put("equals/2", (proxy, args) -> args[0] == args[1]);
+        answers.put("asMetaFor/2", (proxy, args) -> args[0]);
+        answers.put("updateMaterial/2", (proxy, args) -> args[1]);
+        return Proxies.create(ItemFactory.class, answers);
+    }
+
+    private static ItemMeta meta() {
+        Map<Object, Object> values = new HashMap<>();
+        Map<String, Proxies.Answer> containerAnswers = Proxies.answers();
+        containerAnswers.put("set/3", (proxy, args) -> values.put(args[0], args[2]));
+        containerAnswers.put("get/2", (proxy, args) -> values.get(args[0]));
+        containerAnswers.put("has/2", (proxy, args) -> values.containsKey(args[0]));
+        containerAnswers.put("has/1", (proxy, args) -> values.containsKey(args[0]));
+        containerAnswers.put("remove/1", (proxy, args) -> values.remove(args[0]));
+        containerAnswers.put("isEmpty/0", (proxy, args) -> values.isEmpty());
+        PersistentDataContainer container = Proxies.create(PersistentDataContainer.class, containerAnswers);
+
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("getPersistentDataContainer/0", Proxies.value(container));
+        answers.put("clone/0", (proxy, args) -> proxy);
+        return Proxies.create(ItemMeta.class, answers);
+    }
+}
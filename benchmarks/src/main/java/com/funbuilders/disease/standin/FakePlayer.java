@@ -0,0 +1,157 @@
+package com.funbuilders.disease.standin;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Player stand-in with a mutable position and counters for everything the plugin sends to it.
+ */
+public final class FakePlayer {
+    private final UUID uniqueId;
+    private final String name;
+    private final Player handle;
+    private EntityScheduler scheduler;
+    private final Map<PotionEffectType, PotionEffect> effects = new HashMap<>();
+    private FakeWorld world;
+    private double x;
+    private double y;
+    private double z;
+    private boolean inWater;
+    private boolean online = true;
+
+    private long messages;
+    private long particles;
+    private long sounds;
+    private long effectChanges;
+
+    FakePlayer(UUID uniqueId, String name, FakeWorld world, double x, double y, double z, FakeRegionScheduler regions) {
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+
+        Map<String, Proxies.Answer> inventoryAnswers = Proxies.answers();
+        inventoryAnswers.put("addItem/1", (proxy, args) -> new HashMap<Integer, Object>());
+        PlayerInventory inventory = Proxies.create(PlayerInventory.class, inventoryAnswers);
+
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("getUniqueId/0", Proxies.value(uniqueId));
+        answers.put("getName/0", Proxies.value(name));
+        answers.put("getDisplayName/0", Proxies.value(name));
+        answers.put("getType/0", Proxies.value(EntityType.PLAYER));
+        answers.put("getWorld/0", (proxy, args) -> this.world.handle());
+        answers.put("getLocation/0", (proxy, args) -> new Location(this.world.handle(), this.x, this.y, this.z));
+        answers.put("getLocation/1", (proxy, args) -> fill((Location) args[0]));
+        answers.put("isInWater/0", (proxy, args) -> inWater);
+        answers.put("isOnline/0", (proxy, args) -> online);
+        answers.put("isValid/0", (proxy, args) -> online);
+        answers.put("hasPermission/1", Proxies.value(true));
+        answers.put("isOp/0", Proxies.value(true));
+        answers.put("getInventory/0", Proxies.value(inventory));
+        answers.put("sendMessage/1", (proxy, args) -> {
+            messages++;
+            return null;
+        });
+        answers.put("spawnParticle/9", (proxy, args) -> {
+            particles++;
+            return null;
+        });
+        answers.put("spawnParticle/7", (proxy, args) -> {
+            particles++;
+            return null;
+        });
+        answers.put("playSound/4", (proxy, args) -> {
+            sounds++;
+            return null;
+        });
+        answers.put("addPotionEffect/1", (proxy, args) -> addEffect((PotionEffect) args[0]));
+        answers.put("addPotionEffect/2", (proxy, args) -> addEffect((PotionEffect) args[0]));
+        answers.put("removePotionEffect/1", (proxy, args) -> {
+            if (effects.remove(args[0]) != null) effectChanges++;
+            return null;
+        });
+        answers.put("getPotionEffect/1", (proxy, args) -> effects.get(args[0]));
+        answers.put("hasPotionEffect/1", (proxy, args) -> effects.containsKey(args[0]));
+        answers.put("getActivePotionEffects/0", (proxy, args) -> effects.values());
+        answers.put("getScheduler/0", (proxy, args) -> scheduler);
+        this.handle = Proxies.create(FoliaPlayer.class, answers);
+        this.scheduler = regions.entityScheduler(handle);
+    }
+
+    public Player handle() {
+        return handle;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FakeWorld getWorld() {
+        return world;
+    }
+
+    public void moveTo(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public void moveTo(FakeWorld world, double x, double y, double z) {
+        this.world.removePlayer(handle);
+        this.world = world;
+        world.addPlayer(handle);
+        moveTo(x, y, z);
+    }
+
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getZ() { return z; }
+
+    public void setInWater(boolean inWater) {
+        this.inWater = inWater;
+    }
+
+    public long getMessages() { return messages; }
+    public long getParticles() { return particles; }
+    public long getSounds() { return sounds; }
+    public long getEffectChanges() { return effectChanges; }
+    public int getActiveEffects() { return effects.size(); }
+
+    public void clearEffects() {
+        effectChanges += effects.size();
+        effects.clear();
+    }
+
+    void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    private Location fill(Location location) {
+        location.setWorld(world.handle());
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        return location;
+    }
+
+    private boolean addEffect(PotionEffect effect) {
+        effects.put(effect.getType(), effect);
+        effectChanges++;
+        return true;
+    }
+}
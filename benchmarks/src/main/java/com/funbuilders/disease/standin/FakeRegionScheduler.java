@@ -0,0 +1,196 @@
+package com.funbuilders.disease.standin;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Folia's schedulers in process, driven by {@link #tick()}: global tasks and timers run on the
+ * ticking thread, then the entity tasks queued for each region of 32x32 chunks run in parallel on
+ * worker threads, and the tick waits for every region. Asynchronous tasks run inline on the
+ * calling thread. The global thread is the one that last reset the server.
+ */
+public final class FakeRegionScheduler {
+    public static final String WORKER_NAME = "FakeRegion";
+    private static final int REGION_SHIFT = 9;
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable, WORKER_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Timer> timers = new ArrayList<>();
+    private final Queue<Runnable> global = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Queue<Runnable>> regions = new ConcurrentHashMap<>();
+    private final ThreadLocal<Long> currentRegion = new ThreadLocal<>();
+    private final GlobalRegionScheduler globalScheduler = new Global();
+    private final AsyncScheduler asyncScheduler = new Async();
+    private volatile Thread globalThread = Thread.currentThread();
+    private long currentTick;
+
+    FakeRegionScheduler() {
+    }
+
+    GlobalRegionScheduler globalScheduler() {
+        return globalScheduler;
+    }
+
+    AsyncScheduler asyncScheduler() {
+        return asyncScheduler;
+    }
+
+    EntityScheduler entityScheduler(Player player) {
+        return (plugin, run, retired, delay) -> {
+            if (!player.isOnline()) return false;
+            regions.computeIfAbsent(regionOf(player.getLocation()), key -> new ConcurrentLinkedQueue<>()).add(() -> {
+                if (player.isOnline()) {
+                    run.run();
+                } else if (retired != null) {
+                    retired.run();
+                }
+            });
+            return true;
+        };
+    }
+
+    boolean isGlobalTickThread() {
+        return Thread.currentThread() == globalThread;
+    }
+
+    boolean isOwnedByCurrentRegion(Entity entity) {
+        Long owner = currentRegion.get();
+        return owner != null && owner == regionOf(entity.getLocation());
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public void tick() {
+        currentTick++;
+        Runnable task;
+        while ((task = global.poll()) != null) {
+            task.run();
+        }
+        // Timers started while ticking first run on a later tick
+        for (Timer timer : new ArrayList<>(timers)) {
+            if (timer.cancelled || timer.nextRun > currentTick) continue;
+            timer.nextRun = currentTick + timer.period;
+            timer.task.accept(timer);
+        }
+        timers.removeIf(timer -> timer.cancelled);
+        tickRegions();
+    }
+
+    void reset() {
+        cancelAll();
+        globalThread = Thread.currentThread();
+    }
+
+    private void cancelAll() {
+        timers.clear();
+        global.clear();
+        regions.clear();
+    }
+
+    private void tickRegions() {
+        List<Future<?>> running = new ArrayList<>();
+        regions.forEach((region, tasks) -> {
+            if (tasks.isEmpty()) return;
+            running.add(workers.submit(() -> {
+                currentRegion.set(region);
+                try {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                } finally {
+                    currentRegion.remove();
+                }
+            }));
+        });
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Region task failed", e.getCause());
+            }
+        }
+    }
+
+    private static long regionOf(Location location) {
+        return ((long) (location.getBlockX() >> REGION_SHIFT) << 32) | ((location.getBlockZ() >> REGION_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    // Tasks of every plugin are kept together; the benchmarks run one
+    private final class Global implements GlobalRegionScheduler {
+        @Override
+        public ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelayTicks, long periodTicks) {
+            Timer timer = new Timer(task, currentTick + Math.max(1, initialDelayTicks), Math.max(1, periodTicks));
+            timers.add(timer);
+            return timer;
+        }
+
+        @Override
+        public void execute(Plugin plugin, Runnable run) {
+            global.add(run);
+        }
+
+        @Override
+        public void cancelTasks(Plugin plugin) {
+            cancelAll();
+        }
+    }
+
+    private static final class Async implements AsyncScheduler {
+        @Override
+        public ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task) {
+            Timer done = new Timer(task, 0, 0);
+            done.cancelled = true;
+            task.accept(done);
+            return done;
+        }
+
+        @Override
+        public void cancelTasks(Plugin plugin) {
+        }
+    }
+
+    private static final class Timer implements ScheduledTask {
+        final Consumer<ScheduledTask> task;
+        final long period;
+        long nextRun;
+        volatile boolean cancelled;
+
+        Timer(Consumer<ScheduledTask> task, long nextRun, long period) {
+            this.task = task;
+            this.nextRun = nextRun;
+            this.period = period;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
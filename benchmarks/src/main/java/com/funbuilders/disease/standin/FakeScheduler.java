@@ -0,0 +1,123 @@
+package com.funbuilders.disease.standin;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bukkit scheduler stand-in driven by {@link #tick()}. Asynchronous tasks run inline on the
+ * calling thread, everything else runs on the next due tick in submission order.
+ */
+public final class FakeScheduler {
+    private final List<Task> tasks = new ArrayList<>();
+    private final BukkitScheduler handle;
+    private long currentTick;
+    private int nextId = 1;
+
+    FakeScheduler() {
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("runTask/2", (proxy, args) -> schedule((Plugin) args[0], args[1], 0, -1));
+        answers.put("runTaskLater/3", (proxy, args) -> schedule((Plugin) args[0], args[1], (Long) args[2], -1));
+        answers.put("runTaskTimer/4", (proxy, args) -> schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3]));
+        answers.put("runTaskAsynchronously/2", (proxy, args) -> runInline((Plugin) args[0], args[1]));
+        answers.put("runTaskLaterAsynchronously/3", (proxy, args) -> schedule((Plugin) args[0], args[1], (Long) args[2], -1));
+        answers.put("runTaskTimerAsynchronously/4", (proxy, args) -> schedule((Plugin) args[0], args[1], (Long) args[2], (Long) args[3]));
+        answers.put("cancelTask/1", (proxy, args) -> {
+            tasks.stream().filter(task -> task.id == (Integer) args[0]).forEach(task -> task.cancelled = true);
+            return null;
+        });
+        answers.put("cancelTasks/1", (proxy, args) -> {
+            cancelAll();
+            return null;
+        });
+        answers.put("isCurrentlyRunning/1", Proxies.value(false));
+        answers.put("isQueued/1", (proxy, args) -> tasks.stream().anyMatch(task -> task.id == (Integer) args[0] && !task.cancelled));
+        this.handle = Proxies.create(BukkitScheduler.class, answers);
+    }
+
+    public BukkitScheduler handle() {
+        return handle;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public int pendingTasks() {
+        return (int) tasks.stream().filter(task -> !task.cancelled).count();
+    }
+
+    public void tick() {
+        currentTick++;
+        // Tasks scheduled while ticking are picked up on a later tick
+        List<Task> due = new ArrayList<>();
+        for (Task task : tasks) {
+            if (!task.cancelled && task.nextRun <= currentTick) due.add(task);
+        }
+        for (Task task : due) {
+            if (task.cancelled) continue;
+            if (task.period > 0) {
+                task.nextRun = currentTick + task.period;
+            } else {
+                task.cancelled = true;
+            }
+            task.action.run();
+        }
+        tasks.removeIf(task -> task.cancelled);
+    }
+
+    public void cancelAll() {
+        tasks.forEach(task -> task.cancelled = true);
+        tasks.clear();
+    }
+
+    private BukkitTask schedule(Plugin owner, Object action, long delay, long period) {
+        Task task = new Task(nextId++, owner, period);
+        task.nextRun = currentTick + Math.max(1, delay);
+        task.action = toRunnable(action, task.handle);
+        tasks.add(task);
+        return task.handle;
+    }
+
+    private BukkitTask runInline(Plugin owner, Object action) {
+        Task task = new Task(nextId++, owner, -1);
+        task.cancelled = true;
+        toRunnable(action, task.handle).run();
+        return task.handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Runnable toRunnable(Object action, BukkitTask handle) {
+        if (action instanceof Runnable runnable) return runnable;
+        return () -> ((Consumer<BukkitTask>) action).accept(handle);
+    }
+
+    private static final class Task {
+        final int id;
+        final long period;
+        final BukkitTask handle;
+        Runnable action;
+        long nextRun;
+        boolean cancelled;
+
+        Task(int id, Plugin owner, long period) {
+            this.id = id;
+            this.period = period;
+            Map<String, Proxies.Answer> answers = Proxies.answers();
+            answers.put("getTaskId/0", Proxies.value(id));
+            answers.put("getOwner/0", Proxies.value(owner));
+            answers.put("isSync/0", Proxies.value(true));
+            answers.put("isCancelled/0", (proxy, args) -> cancelled);
+            answers.put("cancel/0", (proxy, args) -> {
+                cancelled = true;
+                return null;
+            });
+            this.handle = Proxies.create(BukkitTask.class, answers);
+        }
+    }
+}
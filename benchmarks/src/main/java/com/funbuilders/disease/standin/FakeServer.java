@@ -0,0 +1,177 @@
+package com.funbuilders.disease.standin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.potion.PotionEffectType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process stand-in for a Bukkit server: worlds, players, tick-driven schedulers (Bukkit's and
+ * Folia's) and an item factory, enough to enable the plugin and drive its event handlers and tasks.
+ * Bukkit only accepts one server per JVM, so {@link #install()} hands out a shared instance
+ * and {@link #reset()} clears it between runs.
+ */
+public final class FakeServer {
+    private static FakeServer installed;
+
+    private final Logger logger = Logger.getLogger("FakeServer");
+    private final Map<UUID, FakePlayer> players = new LinkedHashMap<>();
+    private final List<Player> online = new ArrayList<>();
+    private final Collection<Player> onlineView = Collections.unmodifiableList(online);
+    private final Map<String, FakeWorld> worlds = new LinkedHashMap<>();
+    private final FakeScheduler scheduler = new FakeScheduler();
+    private final FakeRegionScheduler regions = new FakeRegionScheduler();
+    private final ItemFactory itemFactory = FakeItems.factory();
+    private final Server handle;
+    private final CommandSender console;
+    private PluginCommand command;
+
+    private FakeServer() {
+        logger.setLevel(Level.WARNING);
+        PluginManager pluginManager = Proxies.create(PluginManager.class, Proxies.answers());
+
+        Map<String, Proxies.Answer> consoleAnswers = Proxies.answers();
+        consoleAnswers.put("getName/0", Proxies.value("CONSOLE"));
+        consoleAnswers.put("hasPermission/1", Proxies.value(true));
+        consoleAnswers.put("isOp/0", Proxies.value(true));
+        this.console = Proxies.create(CommandSender.class, consoleAnswers);
+
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("getName/0", Proxies.value("FakeServer"));
+        answers.put("getVersion/0", Proxies.value("1.0"));
+        answers.put("getBukkitVersion/0", Proxies.value("1.20.1-R0.1-SNAPSHOT"));
+        answers.put("getLogger/0", Proxies.value(logger));
+        answers.put("getOnlinePlayers/0", (proxy, args) -> onlineView);
+        answers.put("getPlayer/1", (proxy, args) -> findPlayer(args[0]));
+        answers.put("getPlayerExact/1", (proxy, args) -> findPlayer(args[0]));
+        answers.put("getPluginManager/0", Proxies.value(pluginManager));
+        answers.put("getScheduler/0", Proxies.value(scheduler.handle()));
+        answers.put("getItemFactory/0", Proxies.value(itemFactory));
+        answers.put("addRecipe/1", Proxies.value(true));
+        answers.put("getPluginCommand/1", (proxy, args) -> command);
+        answers.put("getWorld/1", (proxy, args) -> findWorld(args[0]));
+        answers.put("getWorlds/0", (proxy, args) -> worlds.values().stream().map(FakeWorld::handle).toList());
+        answers.put("isPrimaryThread/0", Proxies.value(true));
+        answers.put("getConsoleSender/0", Proxies.value(console));
+        answers.put("getGlobalRegionScheduler/0", Proxies.value(regions.globalScheduler()));
+        answers.put("getAsyncScheduler/0", Proxies.value(regions.asyncScheduler()));
+        answers.put("isGlobalTickThread/0", (proxy, args) -> regions.isGlobalTickThread());
+        answers.put("isOwnedByCurrentRegion/1", (proxy, args) -> regions.isOwnedByCurrentRegion((Entity) args[0]));
+        this.handle = Proxies.create(FoliaServer.class, answers);
+    }
+
+    public static synchronized FakeServer install() {
+        if (installed == null) {
+            installed = new FakeServer();
+            Bukkit.setServer(installed.handle);
+            registerPotionEffectNames();
+        }
+        installed.reset();
+        return installed;
+    }
+
+    public Server handle() {
+        return handle;
+    }
+
+    public FakeScheduler scheduler() {
+        return scheduler;
+    }
+
+    public FakeRegionScheduler regions() {
+        return regions;
+    }
+
+    public CommandSender console() {
+        return console;
+    }
+
+    public PluginCommand registerCommand(String name, Plugin owner) {
+        command = new PluginCommand(name, owner) {
+        };
+        return command;
+    }
+
+    public FakeWorld createWorld(String name) {
+        return worlds.computeIfAbsent(name, FakeWorld::new);
+    }
+
+    public FakePlayer join(String name, FakeWorld world, double x, double y, double z) {
+        return join(UUID.randomUUID(), name, world, x, y, z);
+    }
+
+    // A player who has been here before, or on another server
+    public FakePlayer join(UUID uniqueId, String name, FakeWorld world, double x, double y, double z) {
+        FakePlayer player = new FakePlayer(uniqueId, name, world, x, y, z, regions);
+        players.put(player.getUniqueId(), player);
+        online.add(player.handle());
+        world.addPlayer(player.handle());
+        return player;
+    }
+
+    public void quit(FakePlayer player) {
+        players.remove(player.getUniqueId());
+        online.remove(player.handle());
+        player.getWorld().removePlayer(player.handle());
+        player.setOnline(false);
+    }
+
+    public Collection<FakePlayer> getPlayers() {
+        return Collections.unmodifiableCollection(players.values());
+    }
+
+    public void reset() {
+        scheduler.cancelAll();
+        regions.reset();
+        new ArrayList<>(players.values()).forEach(this::quit);
+        worlds.clear();
+        command = null;
+    }
+
+    private Player findPlayer(Object key) {
+        if (key instanceof UUID id) {
+            FakePlayer player = players.get(id);
+            return player == null ? null : player.handle();
+        }
+        for (FakePlayer player : players.values()) {
+            if (player.getName().equalsIgnoreCase((String) key)) return player.handle();
+        }
+        return null;
+    }
+
+    private Object findWorld(Object key) {
+        for (FakeWorld world : worlds.values()) {
+            if (key.equals(world.getName()) || key.equals(world.handle().getUID())) return world.handle();
+        }
+        return null;
+    }
+
+    // Effect types are registered by the server implementation; expose the API's own constants by name instead
+    @SuppressWarnings("unchecked")
+    private static void registerPotionEffectNames() {
+        try {
+            Field byName = PotionEffectType.class.getDeclaredField("byName");
+            byName.setAccessible(true);
+            Map<String, PotionEffectType> names = (Map<String, PotionEffectType>) byName.get(null);
+            for (Field field : PotionEffectType.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == PotionEffectType.class) {
+                    names.putIfAbsent(field.getName().toLowerCase(Locale.ROOT), (PotionEffectType) field.get(null));
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Logger.getLogger("FakeServer").warning("Potion effect types unavailable, disease effects will be skipped: " + e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.funbuilders.disease.standin;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * World stand-in. Biomes are a pure function of the chunk: every chunk with a negative X
+ * coordinate is {@link Biome#SNOWY_PLAINS}, everything else {@link Biome#PLAINS}.
+ * Players are its only entities.
+ */
+public final class FakeWorld {
+    private final String name;
+    private final UUID uid = UUID.randomUUID();
+    private final List<Player> players = new ArrayList<>();
+    private final World handle;
+
+    @SuppressWarnings("unchecked")
+    FakeWorld(String name) {
+        this.name = name;
+        Map<String, Proxies.Answer> answers = Proxies.answers();
+        answers.put("getName/0", Proxies.value(name));
+        answers.put("getUID/0", Proxies.value(uid));
+        answers.put("getEnvironment/0", Proxies.value(World.Environment.NORMAL));
+        answers.put("getPlayers/0", (proxy, args) -> new ArrayList<>(players));
+        answers.put("getBiome/1", (proxy, args) -> biomeAt(((Location) args[0]).getBlockX()));
+        answers.put("getBiome/2", (proxy, args) -> biomeAt((Integer) args[0]));
+        answers.put("getBiome/3", (proxy, args) -> biomeAt((Integer) args[0]));
+        answers.put("getNearbyEntities/4", (proxy, args) -> nearby((Location) args[0], (Double) args[1], (Double) args[2],
+                (Double) args[3], entity -> true));
+        answers.put("getNearbyEntities/5", (proxy, args) -> nearby((Location) args[0], (Double) args[1], (Double) args[2],
+                (Double) args[3], (Predicate<Entity>) args[4]));
+        this.handle = Proxies.create(World.class, answers);
+    }
+
+    public World handle() {
+        return handle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Biome biomeAt(int blockX) {
+        return blockX < 0 ? Biome.SNOWY_PLAINS : Biome.PLAINS;
+    }
+
+    // Everything within the box of the given half-extents around the point
+    private List<Entity> nearby(Location center, double dx, double dy, double dz, Predicate<Entity> filter) {
+        List<Entity> found = new ArrayList<>();
+        for (Player player : players) {
+            Location location = player.getLocation();
+            if (Math.abs(location.getX() - center.getX()) <= dx && Math.abs(location.getY() - center.getY()) <= dy
+                    && Math.abs(location.getZ() - center.getZ()) <= dz && filter.test(player)) {
+                found.add(player);
+            }
+        }
+        return found;
+    }
+
+    void addPlayer(Player player) {
+        players.add(player);
+    }
+
+    void removePlayer(Player player) {
+        players.remove(player);
+    }
+}
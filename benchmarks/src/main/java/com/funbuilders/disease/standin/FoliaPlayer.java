@@ -0,0 +1,11 @@
+package com.funbuilders.disease.standin;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import org.bukkit.entity.Player;
+
+/**
+ * The scheduler Folia adds to every entity, offered by the stand-in players.
+ */
+public interface FoliaPlayer extends Player {
+    EntityScheduler getScheduler();
+}
@@ -0,0 +1,20 @@
+package com.funbuilders.disease.standin;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+
+/**
+ * The methods Folia adds to {@link Server}, so the stand-in server can offer them to the plugin's
+ * reflection-driven Folia backend.
+ */
+public interface FoliaServer extends Server {
+    GlobalRegionScheduler getGlobalRegionScheduler();
+
+    AsyncScheduler getAsyncScheduler();
+
+    boolean isGlobalTickThread();
+
+    boolean isOwnedByCurrentRegion(Entity entity);
+}
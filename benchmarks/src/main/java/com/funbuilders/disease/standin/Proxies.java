@@ -0,0 +1,85 @@
+package com.funbuilders.disease.standin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds interface stand-ins from a table of answers keyed by "name/arity".
+ * Anything not in the table returns the zero value of its return type, so a stand-in only
+ * has to describe the handful of methods the plugin actually calls.
+ */
+public final class Proxies {
+    private static final Answer NONE = (proxy, args) -> null;
+
+    private Proxies() {
+    }
+
+    @FunctionalInterface
+    public interface Answer {
+        Object answer(Object proxy, Object[] args) throws Throwable;
+    }
+
+    public static <T> T create(Class<T> type, Map<String, Answer> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Handler(type, answers)));
+    }
+
+    public static Answer value(Object value) {
+        return (proxy, args) -> value;
+    }
+
+    public static Map<String, Answer> answers() {
+        return new HashMap<>();
+    }
+
+    private static final class Handler implements InvocationHandler {
+        private final Class<?> type;
+        private final Map<String, Answer> answers;
+        // Proxy classes hand out the same Method instances, so resolution happens once per method
+        private final Map<Method, Answer> resolved = new ConcurrentHashMap<>();
+
+        Handler(Class<?> type, Map<String, Answer> answers) {
+            this.type = type;
+            this.answers = Map.copyOf(answers);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Answer answer = resolved.get(method);
+            if (answer == null) {
+                answer = resolve(method);
+                resolved.put(method, answer);
+            }
+            Object result = answer.answer(proxy, args);
+            return result == null ? zero(method.getReturnType()) : result;
+        }
+
+        private Answer resolve(Method method) {
+            Answer answer = answers.get(method.getName() + "/" + method.getParameterCount());
+            if (answer != null) return answer;
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> (proxy, args) -> proxy == args[0];
+                    case "hashCode" -> (proxy, args) -> System.identityHashCode(proxy);
+                    default -> (proxy, args) -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                };
+            }
+            return NONE;
+        }
+
+        private static Object zero(Class<?> type) {
+            if (!type.isPrimitive() || type == void.class) return null;
+            if (type == boolean.class) return false;
+            if (type == char.class) return '\0';
+            if (type == long.class) return 0L;
+            if (type == float.class) return 0f;
+            if (type == double.class) return 0d;
+            if (type == int.class) return 0;
+            if (type == short.class) return (short) 0;
+            return (byte) 0;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for Folia's asynchronous scheduler, with only what the plugin's Folia backend looks up.
+ */
+public interface AsyncScheduler {
+    ScheduledTask runNow(Plugin plugin, Consumer<ScheduledTask> task);
+
+    void cancelTasks(Plugin plugin);
+}
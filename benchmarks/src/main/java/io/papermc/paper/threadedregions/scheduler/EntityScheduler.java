@@ -0,0 +1,11 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Stand-in for Folia's per-entity scheduler, with only what the plugin's Folia backend looks up.
+ */
+public interface EntityScheduler {
+    // Returns false, running neither callback, if the entity is already gone
+    boolean execute(Plugin plugin, Runnable run, Runnable retired, long delay);
+}
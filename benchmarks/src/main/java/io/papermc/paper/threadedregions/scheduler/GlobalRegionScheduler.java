@@ -0,0 +1,16 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for Folia's global region scheduler, with only what the plugin's Folia backend looks up.
+ */
+public interface GlobalRegionScheduler {
+    ScheduledTask runAtFixedRate(Plugin plugin, Consumer<ScheduledTask> task, long initialDelayTicks, long periodTicks);
+
+    void execute(Plugin plugin, Runnable run);
+
+    void cancelTasks(Plugin plugin);
+}
@@ -0,0 +1,8 @@
+package io.papermc.paper.threadedregions.scheduler;
+
+/**
+ * Stand-in for Folia's scheduled task, with only what the plugin's Folia backend looks up.
+ */
+public interface ScheduledTask {
+    void cancel();
+}
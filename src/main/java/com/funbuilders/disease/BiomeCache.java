@@ -0,0 +1,155 @@
+package com.funbuilders.disease;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Per-world, per-chunk cache of the "cold biome" classification. The biome is sampled once,
+ * where a player first stands in the chunk, and reused until the chunk unloads or the cold
+ * biome list changes. Each world table has a fixed capacity and is dropped wholesale when full.
+ * Thread-safe; the biome itself is sampled outside the lock.
+ */
+final class BiomeCache {
+    private final Map<UUID, ChunkTable> worlds = new HashMap<>();
+    private final int chunksPerWorld;
+    private Set<Biome> coldBiomes = EnumSet.noneOf(Biome.class);
+    private long hits;
+    private long misses;
+
+    BiomeCache(int chunksPerWorld) {
+        this.chunksPerWorld = Math.max(16, chunksPerWorld);
+    }
+
+    boolean isCold(World world, Location location) {
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        Set<Biome> cold;
+        synchronized (this) {
+            byte cached = table(world).get(key);
+            if (cached != ChunkTable.ABSENT) {
+                hits++;
+                return cached == ChunkTable.COLD;
+            }
+            misses++;
+            cold = coldBiomes;
+        }
+        boolean isCold = cold.contains(world.getBiome(location));
+        synchronized (this) {
+            // A reset while sampling changed the list, so the result is not cached
+            if (cold == coldBiomes) {
+                table(world).put(key, isCold ? ChunkTable.COLD : ChunkTable.WARM);
+            }
+        }
+        return isCold;
+    }
+
+    private ChunkTable table(World world) {
+        return worlds.computeIfAbsent(world.getUID(), uid -> new ChunkTable(chunksPerWorld));
+    }
+
+    synchronized void invalidate(World world, int chunkX, int chunkZ) {
+        ChunkTable table = worlds.get(world.getUID());
+        if (table != null) {
+            table.remove(chunkKey(chunkX, chunkZ));
+        }
+    }
+
+    synchronized void invalidate(World world) {
+        worlds.remove(world.getUID());
+    }
+
+    synchronized void reset(Set<Biome> coldBiomes) {
+        this.coldBiomes = coldBiomes;
+        worlds.clear();
+    }
+
+    synchronized long getHits() { return hits; }
+    synchronized long getMisses() { return misses; }
+
+    synchronized int size() {
+        int size = 0;
+        for (ChunkTable table : worlds.values()) {
+            size += table.size;
+        }
+        return size;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Open-addressed long -> byte table with linear probing
+    private static final class ChunkTable {
+        static final byte ABSENT = 0;
+        static final byte WARM = 1;
+        static final byte COLD = 2;
+
+        private final long[] keys;
+        private final byte[] values;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+
+        ChunkTable(int maxSize) {
+            int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new byte[capacity];
+            this.mask = capacity - 1;
+            this.maxSize = maxSize;
+        }
+
+        byte get(long key) {
+            for (int i = slot(key); ; i = (i + 1) & mask) {
+                if (values[i] == ABSENT) return ABSENT;
+                if (keys[i] == key) return values[i];
+            }
+        }
+
+        void put(long key, byte value) {
+            if (size >= maxSize) {
+                Arrays.fill(values, ABSENT);
+                size = 0;
+            }
+            int i = slot(key);
+            while (values[i] != ABSENT && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == ABSENT) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int i = slot(key);
+            while (values[i] != ABSENT && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == ABSENT) return;
+            values[i] = ABSENT;
+            size--;
+            // Shift back following entries so probe chains stay unbroken
+            for (int j = (i + 1) & mask; values[j] != ABSENT; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!between) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = ABSENT;
+                    i = j;
+                }
+            }
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
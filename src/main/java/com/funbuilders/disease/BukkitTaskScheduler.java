@@ -0,0 +1,61 @@
+package com.funbuilders.disease;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * {@link TaskScheduler} on the Bukkit scheduler: the main thread is both the global thread and
+ * the owner of every player.
+ */
+final class BukkitTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+    private final BukkitScheduler scheduler;
+
+    BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getServer().getScheduler();
+    }
+
+    @Override
+    public Task runTimer(Runnable task, long delay, long period) {
+        BukkitTask scheduled = scheduler.runTaskTimer(plugin, task, delay, period);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if (plugin.getServer().isPrimaryThread()) {
+            task.run();
+        } else {
+            scheduler.runTask(plugin, task);
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        scheduler.runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task, Runnable retired) {
+        runGlobal(() -> {
+            if (player.isOnline()) {
+                task.run();
+            } else if (retired != null) {
+                retired.run();
+            }
+        });
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void cancelAll() {
+        scheduler.cancelTasks(plugin);
+    }
+}
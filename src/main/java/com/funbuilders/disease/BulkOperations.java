@@ -0,0 +1,97 @@
+package com.funbuilders.disease;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Applies an action to many players a slice at a time under a per-tick time budget, so outbreaks
+ * started by commands or other plugins never stall a tick. Jobs run one after another in
+ * submission order; targets that went offline in the meantime are skipped.
+ * Not thread-safe: submit and tick from the main thread.
+ */
+final class BulkOperations {
+    private static final int PROGRESS_INTERVAL_TICKS = 20 * 5;
+
+    private final Deque<Job> jobs = new ArrayDeque<>();
+    private final Function<UUID, Player> players;
+
+    BulkOperations(Function<UUID, Player> players) {
+        this.players = players;
+    }
+
+    // The action returns whether it changed the player; the future completes with how many it changed
+    CompletableFuture<Integer> submit(Collection<? extends Player> targets, Predicate<Player> action, ProgressListener listener) {
+        Job job = new Job(targets.stream().map(Player::getUniqueId).toArray(UUID[]::new), action, listener);
+        if (job.targets.length == 0) {
+            job.result.complete(0);
+        } else {
+            jobs.add(job);
+        }
+        return job.result;
+    }
+
+    void tick(long budgetNanos) {
+        if (jobs.isEmpty()) return;
+        long deadline = System.nanoTime() + budgetNanos;
+        do {
+            Job job = jobs.peek();
+            try {
+                // At least one target per tick, so every job makes progress however small the budget
+                do {
+                    Player player = players.apply(job.targets[job.next++]);
+                    if (player != null && job.action.test(player)) {
+                        job.affected++;
+                    }
+                } while (job.next < job.targets.length && System.nanoTime() < deadline);
+            } catch (RuntimeException e) {
+                jobs.poll();
+                job.result.completeExceptionally(e);
+                continue;
+            }
+            if (job.next < job.targets.length) {
+                if (++job.ticks % PROGRESS_INTERVAL_TICKS == 0 && job.listener != null) {
+                    job.listener.progress(job.next, job.targets.length);
+                }
+                return;
+            }
+            jobs.poll();
+            job.result.complete(job.affected);
+        } while (!jobs.isEmpty() && System.nanoTime() < deadline);
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    void cancelAll() {
+        jobs.forEach(job -> job.result.cancel(false));
+        jobs.clear();
+    }
+
+    interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    private static final class Job {
+        final UUID[] targets;
+        final Predicate<Player> action;
+        final ProgressListener listener;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        int next;
+        int affected;
+        int ticks;
+
+        Job(UUID[] targets, Predicate<Player> action, ProgressListener listener) {
+            this.targets = targets;
+            this.action = action;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.funbuilders.disease;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link SyncTransport} over BungeeCord plugin messaging: batches are forwarded to all other servers
+ * on a subchannel of their own. Plugin messages ride on a player's connection, so nothing goes out
+ * while this server is empty; the proxy holds forwards for empty servers until someone connects.
+ */
+final class BungeeTransport implements SyncTransport, PluginMessageListener {
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "DiseaseSync";
+    // Plugin messages are capped at 32766 bytes, the forward header takes the rest
+    private static final int MAX_MESSAGE = 32_000;
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver;
+
+    BungeeTransport(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public boolean send(byte[] message) {
+        Iterator<? extends Player> online = plugin.getServer().getOnlinePlayers().iterator();
+        if (!online.hasNext()) return false;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(message.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(message.length);
+            out.write(message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        online.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+        return true;
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return MAX_MESSAGE;
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!CHANNEL.equals(channel)) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!SUBCHANNEL.equals(in.readUTF())) return;
+            byte[] data = new byte[in.readUnsignedShort()];
+            in.readFully(data);
+            receiver.accept(data);
+        } catch (IOException ignored) {
+            // Some other plugin's message on the shared channel
+        }
+    }
+
+    @Override
+    public void close() {
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.unregisterOutgoingPluginChannel(plugin, CHANNEL);
+        messenger.unregisterIncomingPluginChannel(plugin, CHANNEL);
+    }
+}
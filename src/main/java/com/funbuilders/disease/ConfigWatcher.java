@@ -0,0 +1,79 @@
+package com.funbuilders.disease;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a single file on a daemon thread and runs a callback once changes to it have settled,
+ * so an editor that saves in several writes triggers one reload. The callback runs on the
+ * watcher thread.
+ */
+final class ConfigWatcher implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final Logger logger;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    ConfigWatcher(File file, Runnable onChange, Logger logger) throws IOException {
+        this.file = file.toPath().toAbsolutePath();
+        this.onChange = onChange;
+        this.logger = logger;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "Disease-ConfigWatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = drain(watchService.take());
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+                if (changed) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Config watcher stopped", e);
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Overflowed events no longer say which file changed
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close config watcher", e);
+        }
+    }
+}
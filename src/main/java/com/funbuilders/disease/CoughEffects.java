@@ -0,0 +1,182 @@
+package com.funbuilders.disease;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects the coughs of one tick and sends their particles and sounds in a single pass, only to
+ * players within range, found through a grid of player positions built once per tick.
+ * Packets are charged against a per-tick budget one by one. Every coughing player hears their own
+ * cough first; when the rest does not fit, particles go to an evenly spread subset of the viewers,
+ * and once they are gone, sounds for other viewers are dropped the same way.
+ * On a regionized server no other region's player is touched from the global thread: every cough
+ * is handed to the coughing player's region, which finds its viewers among the entities around it
+ * and sends to them there, with an equal share of the budget.
+ * Coughs may be added from any thread; flush from the global thread.
+ */
+final class CoughEffects {
+    private final Queue<Player> added = new ConcurrentLinkedQueue<>();
+    private final Set<Player> coughing = new LinkedHashSet<>();
+    private final SpatialGrid grid = new SpatialGrid();
+    private final Batch batch = new Batch();
+
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final AtomicLong packetsDropped = new AtomicLong();
+
+    void add(Player player) {
+        added.add(player);
+    }
+
+    void flush(Collection<? extends Player> online, Particle particle, int particleCount, String sound, double radius,
+               int packetBudget) {
+        Player player;
+        while ((player = added.poll()) != null) {
+            coughing.add(player);
+        }
+        if (coughing.isEmpty()) return;
+        grid.rebuild(online, radius);
+        for (Player source : coughing) {
+            Location origin = batch.addSource(source);
+            if (origin == null) continue;
+            grid.forEachNear(origin, radius, viewer -> {
+                if (viewer != source) batch.addViewer(viewer);
+            });
+            batch.endSource();
+        }
+        coughing.clear();
+        send(batch, particle, particleCount, sound, packetBudget);
+        batch.clear();
+    }
+
+    // The radius has to stay well within what a region owns around its players, which Folia keeps several chunks wide
+    void flushRegionized(Particle particle, int particleCount, String sound, double radius, int packetBudget,
+                         BiConsumer<Player, Runnable> regionOf) {
+        Player player;
+        while ((player = added.poll()) != null) {
+            coughing.add(player);
+        }
+        if (coughing.isEmpty()) return;
+        int share = Math.max(1, packetBudget / coughing.size());
+        for (Player source : coughing) {
+            regionOf.accept(source, () -> {
+                Batch own = new Batch();
+                Location origin = own.addSource(source);
+                if (origin == null) return;
+                double radiusSquared = radius * radius;
+                for (Entity entity : origin.getWorld().getNearbyEntities(origin, radius, radius, radius,
+                        entity -> entity instanceof Player && entity != source)) {
+                    if (entity.getLocation().distanceSquared(origin) <= radiusSquared) {
+                        own.addViewer((Player) entity);
+                    }
+                }
+                own.endSource();
+                send(own, particle, particleCount, sound, share);
+            });
+        }
+        coughing.clear();
+    }
+
+    long getPacketsSent() { return packetsSent.get(); }
+    long getPacketsDropped() { return packetsDropped.get(); }
+
+    // Subsets are picked by spreading the quota evenly over the batch, so later coughs are thinned like earlier ones
+    private void send(Batch batch, Particle particle, int particleCount, String sound, int packetBudget) {
+        int coughs = batch.size;
+        int pairs = batch.viewers.size();
+        int others = pairs - coughs;
+        int ownSounds = sound == null ? 0 : Math.min(coughs, packetBudget);
+        int otherSounds = sound == null ? 0 : Math.min(others, packetBudget - ownSounds);
+        int particles = particle == null ? 0 : Math.min(pairs, packetBudget - ownSounds - otherSounds);
+        long particlePicker = 0;
+        long soundPicker = 0;
+        int ownSoundsLeft = ownSounds;
+        long sent = 0;
+
+        int start = 0;
+        for (int i = 0; i < coughs; i++) {
+            Location origin = batch.origins[i];
+            double x = origin.getX();
+            double y = origin.getY() + 1.7;
+            double z = origin.getZ() + 0.2;
+            for (int v = start; v < batch.ends[i]; v++) {
+                Player viewer = batch.viewers.get(v);
+                if (particle != null) {
+                    particlePicker += particles;
+                    if (particlePicker >= pairs) {
+                        particlePicker -= pairs;
+                        viewer.spawnParticle(particle, x, y, z, particleCount, 0.2, 0.2, 0.2, 0.01);
+                        sent++;
+                    }
+                }
+                if (sound != null) {
+                    boolean play;
+                    if (v == start) {
+                        play = ownSoundsLeft-- > 0;
+                    } else {
+                        soundPicker += otherSounds;
+                        play = soundPicker >= others;
+                        if (play) soundPicker -= others;
+                    }
+                    if (play) {
+                        viewer.playSound(origin, sound, 1.0f, 1.0f);
+                        sent++;
+                    }
+                }
+            }
+            start = batch.ends[i];
+        }
+        int wanted = (particle != null ? pairs : 0) + (sound != null ? pairs : 0);
+        packetsSent.addAndGet(sent);
+        packetsDropped.addAndGet(wanted - sent);
+    }
+
+    // Viewers of each cough are stored contiguously, the coughing player first
+    private static final class Batch {
+        final List<Player> viewers = new ArrayList<>();
+        Location[] origins = new Location[16];
+        int[] ends = new int[16];
+        int size;
+
+        // Returns where the cough is, null if the player is in no world
+        Location addSource(Player source) {
+            if (size == origins.length) {
+                origins = Arrays.copyOf(origins, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            Location origin = origins[size];
+            if (origin == null) {
+                origin = origins[size] = new Location(null, 0, 0, 0);
+            }
+            source.getLocation(origin);
+            if (origin.getWorld() == null) return null;
+            viewers.add(source);
+            return origin;
+        }
+
+        void addViewer(Player viewer) {
+            viewers.add(viewer);
+        }
+
+        void endSource() {
+            ends[size++] = viewers.size();
+        }
+
+        void clear() {
+            viewers.clear();
+            size = 0;
+        }
+    }
+}
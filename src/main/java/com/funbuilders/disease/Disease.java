@@ -1,113 +1,307 @@
 package com.funbuilders.disease;
 
+import com.funbuilders.disease.EventJournal.Cause;
+import com.funbuilders.disease.EventJournal.Type;
+import com.funbuilders.disease.PluginMetrics.Probe;
 import org.bukkit.*;
+import org.bukkit.block.Biome;
+import org.bukkit.command.BlockCommandSender;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
 import org.bukkit.inventory.ShapedRecipe;
 import org.bukkit.inventory.ShapelessRecipe;
 import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public final class Disease extends JavaPlugin implements Listener, TabCompleter {
     private static final String DISEASE_KEY = "diseases";
     private static final String COUGH_COLD = "cough_cold";
     private static final long ENVIRONMENT_CHECK_INTERVAL = 20L * 5L; // 5 seconds
+    private static final DiseaseConfig[] NO_DISEASES = new DiseaseConfig[0];
+    private static final Trigger[] NO_TRIGGERS = new Trigger[0];
+    private static final Pattern RADIUS_SELECTOR = Pattern.compile("@a\\[r=(\\d+(?:\\.\\d+)?)]");
+    private static final Pattern PERCENT_SELECTOR = Pattern.compile("(\\d{1,3})%");
 
     private final Random random = new Random();
-    private final Map<UUID, DiseaseData> diseaseData = new ConcurrentHashMap<>();
-    private final Map<UUID, BukkitRunnable> coughTasks = new ConcurrentHashMap<>();
-    private final Map<String, DiseaseConfig> diseaseConfigs = new HashMap<>();
-    private final Map<String, ItemStack> customItems = new HashMap<>();
+    private final DiseaseIds diseaseIds = new DiseaseIds();
+    private final DiseaseTable diseaseTable = new DiseaseTable();
+    private final SpatialGrid contagionGrid = new SpatialGrid();
+    private final CoughEffects coughEffects = new CoughEffects();
+    private final Set<UUID> dirtyPlayers = new HashSet<>();
+    private final Set<UUID> pendingLoads = new HashSet<>();
+    private final RoundRobinSweep<UUID> environmentalSweep = new RoundRobinSweep<>();
+    // Only stage changes with something to apply are queued; infected players in between cost nothing
+    // Entries of players who left or were cured stay until due and are skipped then; the set keeps a rejoin from queueing twice
+    private final PriorityQueue<Transition> transitions = new PriorityQueue<>(Comparator.comparingLong(Transition::dueAt));
+    private final Set<Transition> queuedTransitions = new HashSet<>();
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final EffectReconciler effects = new EffectReconciler();
+    private final IntentQueue intents = new IntentQueue();
+    private final BulkOperations bulkOperations = new BulkOperations(playerId -> getServer().getPlayer(playerId));
+    private final AtomicBoolean reloading = new AtomicBoolean();
 
-    private String prefix;
-    private ConfigValues configValues;
+    // Replaced as a whole on reload, so readers always see one consistent version of the config
+    private volatile Ruleset ruleset;
+    private TaskScheduler scheduler;
+    private Configuration bundledDefaults;
+    private ConfigWatcher configWatcher;
+    private EventJournal journal;
+    private SyncTransport syncTransport;
+    private DiseaseSync sync;
     private NamespacedKey diseaseNamespacedKey;
+    private DiseaseStore diseaseStore;
+    private TimingWheel<UUID> coughWheel;
+    private BiomeCache biomeCache;
+
+    public Disease() {
+        super();
+    }
+
+    // Used by in-process harnesses (see the benchmarks module) that run the plugin without a real server
+    Disease(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
+        if (scheduler == null) {
+            scheduler = TaskScheduler.create(this);
+        }
         diseaseNamespacedKey = new NamespacedKey(this, DISEASE_KEY);
         saveDefaultConfig();
-        loadConfigurations();
-        registerCustomItems();
+        publish(loadInitialRuleset());
         registerCraftingRecipes();
+        diseaseStore = new DiseaseStore(new File(getDataFolder(), "data"), getLogger());
+        openJournal();
+        openSync();
+        startStorageFlushTask();
+        startCoughScheduler();
         startEnvironmentalTask();
+        startContagionTask();
+        startProgressionTask();
+        startBulkTask();
+        startIntentTask();
+        startEffectTask();
+        startMetricsDumpTask();
         getServer().getPluginManager().registerEvents(this, this);
+        getServer().getOnlinePlayers().forEach(this::loadPlayerData);
         Objects.requireNonNull(getCommand("diseases")).setExecutor(this);
         Objects.requireNonNull(getCommand("diseases")).setTabCompleter(this);
-        getLogger().info("Loaded " + diseaseConfigs.size() + " diseases");
+        getLogger().info("Loaded " + ruleset.diseases.size() + " diseases");
+    }
+
+    // Lets the benchmarks run the plugin on an in-process scheduler; call before onEnable
+    void useScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Lets in-process harnesses connect instances over a LoopbackTransport; call before onEnable
+    void useSyncTransport(SyncTransport transport) {
+        this.syncTransport = transport;
     }
 
     @Override
     public void onDisable() {
-        coughTasks.values().forEach(BukkitRunnable::cancel);
-        coughTasks.clear();
+        if (scheduler != null) {
+            scheduler.cancelAll();
+        }
+        bulkOperations.cancelAll();
+        if (configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+        if (coughWheel != null) {
+            coughWheel.clear();
+        }
+        if (diseaseStore != null) {
+            // Treatment items behind queued intents are already used up
+            drainIntents();
+            getServer().getOnlinePlayers().forEach(player -> markDirty(player.getUniqueId()));
+            stageDirtyPlayers();
+            if (sync != null) {
+                // Players are still connected here, so their hand-offs can go out
+                getServer().getOnlinePlayers().forEach(player -> sync.left(player.getUniqueId(),
+                        pendingLoads.contains(player.getUniqueId()) ? null : getInfections(player.getUniqueId())));
+                sync.close();
+                sync = null;
+            }
+            diseaseStore.close(ruleset.values.storageShutdownTimeout * 1000L);
+        }
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
         getLogger().info("Diseases Plugin disabled");
     }
 
-    private void loadConfigurations() {
+    // A broken config.yml at startup falls back to the bundled defaults so the plugin still enables
+    private Ruleset loadInitialRuleset() {
         reloadConfig();
-        prefix = ChatColor.translateAlternateColorCodes('&', getConfig().getString("prefix", "&7[&cБолезни&7] &r"));
-        configValues = new ConfigValues(getConfig());
-        loadDiseaseConfigs();
-    }
-
-    private void loadDiseaseConfigs() {
-        diseaseConfigs.clear();
-        ConfigurationSection diseasesSection = getConfig().getConfigurationSection("diseases");
-        if (diseasesSection != null) {
-            diseasesSection.getKeys(false).forEach(diseaseName -> {
-                ConfigurationSection section = diseasesSection.getConfigurationSection(diseaseName);
-                if (section != null) {
-                    diseaseConfigs.put(diseaseName, new DiseaseConfig(diseaseName, section));
-                }
-            });
+        bundledDefaults = getConfig().getDefaults();
+        try {
+            return Ruleset.compile(getConfig(), diseaseIds, diseaseNamespacedKey, getLogger());
+        } catch (InvalidConfigurationException e) {
+            getLogger().severe("Invalid config.yml, using the bundled defaults: " + e.getMessage());
+        }
+        try {
+            return Ruleset.compile(Objects.requireNonNull(bundledDefaults, "bundled config.yml"), diseaseIds,
+                    diseaseNamespacedKey, getLogger());
+        } catch (InvalidConfigurationException e) {
+            throw new IllegalStateException("Bundled config.yml is invalid", e);
         }
     }
 
-    private void registerCustomItems() {
-        customItems.put("activated_charcoal", createCustomItem(Material.CHARCOAL, ChatColor.GRAY + "Активированный уголь",
-                ChatColor.GRAY + "Помогает выводить токсины."));
-        customItems.put("antibiotics", createCustomItem(Material.PAPER, ChatColor.BLUE + "Антибиотики",
-                ChatColor.BLUE + "Борется с бактериальными инфекциями."));
-        customItems.put("herbal_tea", createCustomItem(Material.POTION, ChatColor.GREEN + "Травяной чай",
-                ChatColor.GREEN + "Успокаивает кашель и простуду."));
+    // Parsing and validation run off the main thread; the live ruleset is only replaced once the new one compiles
+    private void reloadRuleset(CommandSender sender) {
+        if (!reloading.compareAndSet(false, true)) {
+            if (sender != null) {
+                sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Перезагрузка уже выполняется");
+            }
+            return;
+        }
+        File file = new File(getDataFolder(), "config.yml");
+        scheduler.runAsync(() -> {
+            try {
+                Ruleset compiled = Ruleset.load(file, bundledDefaults, diseaseIds, diseaseNamespacedKey, getLogger());
+                scheduler.runGlobal(() -> finishReload(sender, compiled, null));
+            } catch (IOException | InvalidConfigurationException e) {
+                scheduler.runGlobal(() -> finishReload(sender, null, e.getMessage()));
+            }
+        });
     }
 
-    private ItemStack createCustomItem(Material material, String name, String lore) {
-        ItemStack item = new ItemStack(material);
+    private void finishReload(CommandSender sender, Ruleset compiled, String error) {
+        reloading.set(false);
+        if (compiled == null) {
+            getLogger().warning("Rejected config.yml, keeping the current settings: " + error);
+            if (sender != null) {
+                sender.sendMessage(ruleset.prefix + ChatColor.RED + "Ошибка в конфиге, изменения не применены: " + error);
+            }
+            return;
+        }
+        publish(compiled);
+        getLogger().info("Reloaded " + compiled.diseases.size() + " diseases");
+        if (sender != null) {
+            sender.sendMessage(compiled.prefix + ChatColor.GREEN + "Плагин перезагружен");
+        }
+    }
+
+    // Main thread only: swaps the ruleset in and refreshes the state derived from it
+    private void publish(Ruleset compiled) {
+        ruleset = compiled;
+        if (biomeCache == null) {
+            biomeCache = new BiomeCache(compiled.values.biomeCacheChunks);
+        }
+        biomeCache.reset(compiled.values.coldBiomes);
+        // Anyone may now carry a disease with environmental triggers; the sweep drops the rest on its first visit
+        diseaseTable.forEachPlayer(environmentalSweep::add);
+        diseaseTable.forEachPlayer(effects::markDirty);
+        rescheduleTransitions();
+        updateConfigWatcher(compiled.values.watchConfig);
+    }
+
+    private void updateConfigWatcher(boolean enabled) {
+        if (enabled == (configWatcher != null)) return;
+        if (!enabled) {
+            configWatcher.close();
+            configWatcher = null;
+            return;
+        }
+        try {
+            configWatcher = new ConfigWatcher(new File(getDataFolder(), "config.yml"), () -> {
+                if (isEnabled()) reloadRuleset(null);
+            }, getLogger());
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to watch config.yml, reload it with /diseases reload", e);
+        }
+    }
+
+    ItemStack getCustomItem(String id) {
+        ItemStack item = ruleset.items.get(id);
+        return item == null ? null : item.clone();
+    }
+
+    // Custom items are identified by their tag, so listeners never compare full ItemMeta
+    private String getCustomItemId(ItemStack item) {
+        if (!item.hasItemMeta()) return null;
         ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            meta.setDisplayName(name);
-            meta.setLore(Collections.singletonList(lore));
+        if (meta == null) return null;
+        String id = meta.getPersistentDataContainer().get(diseaseNamespacedKey, PersistentDataType.STRING);
+        return id != null ? id : tagLegacyItem(item, meta);
+    }
+
+    // Items crafted before custom items were tagged are matched by material, name and lore, and tagged
+    // so the next use takes the fast path
+    private String tagLegacyItem(ItemStack item, ItemMeta meta) {
+        if (!meta.hasDisplayName()) return null;
+        for (Map.Entry<String, ItemStack> entry : ruleset.items.entrySet()) {
+            ItemStack custom = entry.getValue();
+            if (custom.getType() != item.getType()) continue;
+            ItemMeta customMeta = custom.getItemMeta();
+            if (customMeta == null || !customMeta.getDisplayName().equals(meta.getDisplayName())
+                    || !Objects.equals(customMeta.getLore(), meta.getLore())) continue;
+            meta.getPersistentDataContainer().set(diseaseNamespacedKey, PersistentDataType.STRING, entry.getKey());
             item.setItemMeta(meta);
+            return entry.getKey();
         }
-        return item;
+        return null;
+    }
+
+    private DiseaseConfig[] getTreatedDiseases(ItemStack item) {
+        String treatment = getCustomItemId(item);
+        return treatment == null ? NO_DISEASES : ruleset.getTreatedDiseases(treatment);
     }
 
     private void registerCraftingRecipes() {
+        Map<String, ItemStack> customItems = ruleset.items;
         registerRecipe(new ShapedRecipe(NamespacedKey.minecraft("activated_charcoal"), customItems.get("activated_charcoal"))
                 .shape(" C ", "CCC", " C ")
                 .setIngredient('C', Material.CHARCOAL));
@@ -126,94 +320,659 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
         getServer().addRecipe(recipe);
     }
 
-    private void startEnvironmentalTask() {
-        new BukkitRunnable() {
+    // Journal settings are read once, changing them takes a restart
+    private void openJournal() {
+        ConfigValues values = ruleset.values;
+        if (!values.journalEnabled) return;
+        try {
+            journal = EventJournal.open(new File(getDataFolder(), "journal").toPath(), values.journalSegmentBytes,
+                    values.journalMaxSegments, diseaseIds, getLogger());
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to open event journal, journal disabled", e);
+        }
+    }
+
+    // Sync settings are read once, changing them takes a restart
+    private void openSync() {
+        ConfigValues values = ruleset.values;
+        if (syncTransport == null) {
+            switch (values.syncTransport) {
+                case "none" -> {
+                    return;
+                }
+                case "bungeecord" -> syncTransport = new BungeeTransport(this);
+                default -> {
+                    getLogger().warning("Unknown sync transport '" + values.syncTransport + "', server sync disabled");
+                    return;
+                }
+            }
+        }
+        sync = new DiseaseSync(syncTransport, new DiseaseSync.StateSink() {
             @Override
-            public void run() {
-                getServer().getOnlinePlayers().forEach(player -> {
-                    if (hasDisease(player, COUGH_COLD)) {
-                        checkEnvironmentalTriggers(player);
+            public void infected(UUID playerId, String disease, long infectedAt) {
+                applySyncedInfection(playerId, disease, infectedAt);
+            }
+
+            @Override
+            public void cured(UUID playerId, String disease) {
+                applySyncedCure(playerId, disease);
+            }
+
+            @Override
+            public Map<String, Long> current(UUID playerId) {
+                return getInfections(playerId);
+            }
+        }, values.syncHandOffTtl * 1000L, getLogger());
+        sync.start();
+        scheduler.runTimer(timed(Probe.SYNC, () -> sync.tick(System.currentTimeMillis())), 1L, 1L);
+    }
+
+    // Changes another server made while the player was switching over; the player already saw their messages there
+    private void applySyncedInfection(UUID playerId, String diseaseName, long infectedAt) {
+        Player player = getServer().getPlayer(playerId);
+        DiseaseConfig config = ruleset.diseases.get(diseaseName);
+        if (player == null || config == null) return;
+        diseaseTable.remove(playerId, config.getId());
+        restoreDiseases(player, Map.of(diseaseName, infectedAt));
+        effects.markDirty(playerId);
+        markDirty(playerId);
+    }
+
+    private void applySyncedCure(UUID playerId, String diseaseName) {
+        Player player = getServer().getPlayer(playerId);
+        DiseaseConfig config = ruleset.diseases.get(diseaseName);
+        if (player == null || config == null || !diseaseTable.remove(playerId, config.getId())) return;
+        effects.markDirty(playerId);
+        markDirty(playerId);
+        if (COUGH_COLD.equals(diseaseName)) {
+            cancelCoughTask(player);
+        }
+    }
+
+    private void startStorageFlushTask() {
+        long interval = ruleset.values.storageFlushInterval * 20L;
+        scheduler.runTimer(() -> {
+            stageDirtyPlayers();
+            diseaseStore.flush();
+        }, interval, interval);
+    }
+
+    private void stageDirtyPlayers() {
+        dirtyPlayers.forEach(playerId -> diseaseStore.stage(playerId, getInfections(playerId)));
+        dirtyPlayers.clear();
+    }
+
+    // Storage stays name-based, so saved data does not depend on the order diseases were interned in
+    private Map<String, Long> getInfections(UUID playerId) {
+        Map<String, Long> infections = new HashMap<>();
+        diseaseTable.forEachInfection(playerId, (id, infectedAt) -> infections.put(diseaseIds.name(id), infectedAt));
+        return infections;
+    }
+
+    private void markDirty(UUID playerId) {
+        // A player whose saved state is still loading must not have it overwritten by a partial snapshot
+        if (!pendingLoads.contains(playerId)) {
+            dirtyPlayers.add(playerId);
+        }
+    }
+
+    private void loadPlayerData(Player player) {
+        UUID playerId = player.getUniqueId();
+        if (pendingLoads.contains(playerId)) return;
+        // A player coming from another server gets their state from memory, before the join is over (on Folia, see onPlayerJoin)
+        Map<String, Long> handedOff = sync == null ? null : sync.handOff(playerId, System.currentTimeMillis());
+        if (handedOff != null) {
+            restoreDiseases(player, handedOff);
+            markDirty(playerId);
+            sync.established(playerId, getInfections(playerId));
+            return;
+        }
+        pendingLoads.add(playerId);
+        scheduler.runAsync(() -> {
+            Map<String, Long> diseases = diseaseStore.load(playerId);
+            scheduler.runGlobal(() -> {
+                pendingLoads.remove(playerId);
+                Player online = getServer().getPlayer(playerId);
+                if (online == null) return;
+                // The other server's state, if it arrived meanwhile, replaces what storage had rather than joining it
+                Map<String, Long> late = sync == null ? null : sync.handOff(playerId, System.currentTimeMillis());
+                if (late != null) {
+                    restoreDiseases(online, late);
+                    markDirty(playerId);
+                    sync.established(playerId, getInfections(playerId));
+                    return;
+                }
+                boolean recovered = restoreDiseases(online, diseases);
+                // Recoveries while offline and infections caught while loading still need saving
+                if (recovered || diseaseTable.contains(playerId) && !getInfections(playerId).equals(diseases)) {
+                    markDirty(playerId);
+                }
+                if (sync != null) {
+                    sync.established(playerId, getInfections(playerId));
+                }
+            });
+        });
+    }
+
+    // A staged disease may have moved on while the player was offline; effects the server saved that still match are kept.
+    // Returns whether any disease ran its course in the meantime
+    private boolean restoreDiseases(Player player, Map<String, Long> diseases) {
+        Ruleset rules = ruleset;
+        long now = System.currentTimeMillis();
+        boolean recovered = false;
+        for (Map.Entry<String, Long> entry : diseases.entrySet()) {
+            DiseaseConfig config = rules.diseases.get(entry.getKey());
+            if (config == null) continue;
+            long infectedAt = entry.getValue();
+            if (config.isRecovered(now - infectedAt)) {
+                recovered = true;
+                continue;
+            }
+            if (!diseaseTable.add(player.getUniqueId(), config.getId(), infectedAt)) continue;
+            effects.markDirty(player.getUniqueId());
+            scheduleTransition(player.getUniqueId(), config, infectedAt, now);
+            if (COUGH_COLD.equals(config.getName())) {
+                scheduleCoughTask(player);
+            }
+            if (config.getTriggers().hasEnvironment()) {
+                environmentalSweep.add(player.getUniqueId());
+            }
+        }
+        return recovered;
+    }
+
+    // On Folia the join is handled on the player's region thread and the state, handed off or not, is put
+    // in place on the global thread's next tick. Until then the player has no diseases, and anything
+    // infecting them in that tick is merged with the handed-off state
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        scheduler.runGlobal(() -> loadPlayerData(player));
+    }
+
+    // Player bookkeeping lives on the global thread, which region threads hand joins and quits to
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        scheduler.runGlobal(() -> handleQuit(playerId));
+    }
+
+    private void handleQuit(UUID playerId) {
+        coughWheel.cancel(playerId);
+        environmentalSweep.remove(playerId);
+        boolean loading = pendingLoads.remove(playerId);
+        if (!loading && dirtyPlayers.remove(playerId)) {
+            diseaseStore.stage(playerId, getInfections(playerId));
+        }
+        if (sync != null) {
+            sync.left(playerId, loading ? null : getInfections(playerId));
+        }
+        diseaseTable.removePlayer(playerId);
+        effects.forget(playerId);
+    }
+
+    @EventHandler
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        effects.clearApplied(playerId);
+        if (diseaseTable.contains(playerId)) {
+            effects.markDirty(playerId);
+        }
+    }
+
+    // Only players with environmental diseases are visited, each once per interval, spread across its ticks
+    private void startEnvironmentalTask() {
+        scheduler.runTimer(timed(Probe.ENVIRONMENT, () -> environmentalSweep.tick(ENVIRONMENT_CHECK_INTERVAL,
+                ruleset.values.environmentTickBudgetNanos, this::checkEnvironmentalTriggers)), 1L, 1L);
+    }
+
+    // The sweep stays on the global thread; water and biome checks run where the player's region is ticked
+    private void checkEnvironmentalTriggers(UUID playerId) {
+        Player player = getServer().getPlayer(playerId);
+        if (player == null || !hasEnvironmentalDisease(playerId)) {
+            environmentalSweep.remove(playerId);
+            return;
+        }
+        scheduler.runForPlayer(player, () -> checkEnvironmentalTriggers(player));
+    }
+
+    private boolean hasEnvironmentalDisease(UUID playerId) {
+        for (DiseaseConfig config : ruleset.environmentalDiseases) {
+            if (diseaseTable.has(playerId, config.getId())) return true;
+        }
+        return false;
+    }
+
+    // Returns false once the player no longer has any disease with environmental triggers
+    boolean checkEnvironmentalTriggers(Player player) {
+        UUID playerId = player.getUniqueId();
+        boolean affected = false;
+        for (DiseaseConfig config : ruleset.environmentalDiseases) {
+            if (!diseaseTable.has(playerId, config.getId())) continue;
+            affected = true;
+            Triggers triggers = config.getTriggers();
+            if (triggers.wetChance > 0 && player.isInWater() && roll(triggers.wetChance)) {
+                triggerCough(player, Cause.WATER, config.getId());
+            }
+            if (triggers.coldBiomeChance > 0 && isPlayerInColdBiome(player) && roll(triggers.coldBiomeChance)) {
+                triggerCough(player, Cause.COLD_BIOME, config.getId());
+            }
+        }
+        return affected;
+    }
+
+    private void startContagionTask() {
+        long interval = ruleset.values.contagionInterval;
+        scheduler.runTimer(timed(Probe.CONTAGION, this::spreadContagion), interval, interval);
+    }
+
+    // Players are bucketed into cells as large as the biggest radius, so each carrier only tests its neighbouring cells
+    private void spreadContagion() {
+        Ruleset rules = ruleset;
+        if (rules.contagiousDiseases.length == 0 || !diseaseTable.hasAny(rules.contagiousIds)) return;
+        if (scheduler.isRegionized()) {
+            spreadContagionInRegions(rules);
+            return;
+        }
+        contagionGrid.rebuild(getServer().getOnlinePlayers(), rules.contagionCellSize);
+        for (int i = 0; i < contagionGrid.size(); i++) {
+            Player carrier = contagionGrid.player(i);
+            for (DiseaseConfig config : rules.contagiousDiseases) {
+                if (!diseaseTable.has(carrier.getUniqueId(), config.getId())) continue;
+                contagionGrid.forEachWithin(i, config.getContagionRadius(), target -> {
+                    if (!diseaseTable.has(target.getUniqueId(), config.getId()) && roll(config.getContagionChance())) {
+                        applyDisease(target, config, Cause.CONTAGION);
                     }
                 });
             }
-        }.runTaskTimer(this, 0L, ENVIRONMENT_CHECK_INTERVAL);
+        }
     }
 
-    private void checkEnvironmentalTriggers(Player player) {
-        if (player.isInWater() && random.nextDouble() < configValues.wetIncrease) {
-            triggerCough(player);
+    // Positions of other regions' players are not read from the global thread: each carrier's region
+    // looks around the carrier and queues the infections, which are applied on the next drain
+    private void spreadContagionInRegions(Ruleset rules) {
+        for (Player carrier : getServer().getOnlinePlayers()) {
+            for (DiseaseConfig config : rules.contagiousDiseases) {
+                if (!diseaseTable.has(carrier.getUniqueId(), config.getId())) continue;
+                scheduler.runForPlayer(carrier, () -> infectNearby(carrier, config));
+            }
         }
-        if (isPlayerInColdBiome(player) && random.nextDouble() < configValues.coldBiomeIncrease) {
-            triggerCough(player);
+    }
+
+    private void infectNearby(Player carrier, DiseaseConfig config) {
+        Location origin = carrier.getLocation();
+        double radius = config.getContagionRadius();
+        for (Entity entity : carrier.getWorld().getNearbyEntities(origin, radius, radius, radius,
+                entity -> entity instanceof Player && entity != carrier)) {
+            if (entity.getLocation().distanceSquared(origin) <= radius * radius
+                    && !diseaseTable.has(entity.getUniqueId(), config.getId()) && roll(config.getContagionChance())) {
+                intents.offer(entity.getUniqueId(), config.getId(), IntentQueue.Kind.CONTAGION);
+            }
         }
     }
 
+    private void startProgressionTask() {
+        scheduler.runTimer(timed(Probe.PROGRESSION, this::processTransitions), 20L, 20L);
+    }
+
+    private void processTransitions() {
+        long now = System.currentTimeMillis();
+        Transition transition;
+        while ((transition = transitions.peek()) != null && transition.dueAt() <= now) {
+            transitions.poll();
+            queuedTransitions.remove(transition);
+            // Entries left behind by a quit, cure or reinfection no longer match the table
+            if (diseaseTable.infectedAt(transition.playerId(), transition.diseaseId()) != transition.infectedAt()) continue;
+            Player player = getServer().getPlayer(transition.playerId());
+            DiseaseConfig config = ruleset.getDisease(transition.diseaseId());
+            if (player == null || config == null) continue;
+            if (config.isRecovered(now - transition.infectedAt())) {
+                cureDisease(player, config, Cause.RECOVERY);
+                continue;
+            }
+            int stage = config.stageAt(now - transition.infectedAt());
+            effects.markDirty(player.getUniqueId());
+            sendStageMessage(player, config, stage);
+            scheduleTransition(player.getUniqueId(), config, transition.infectedAt(), now);
+        }
+    }
+
+    private void scheduleTransition(UUID playerId, DiseaseConfig config, long infectedAt, long now) {
+        long elapsed = now - infectedAt;
+        long offset = config.isRecovered(elapsed) ? elapsed : config.nextTransitionAfter(config.stageAt(elapsed));
+        if (offset >= 0) {
+            Transition transition = new Transition(playerId, config.getId(), infectedAt, infectedAt + offset);
+            if (queuedTransitions.add(transition)) {
+                transitions.add(transition);
+            }
+        }
+    }
+
+    // Stage durations may have changed, so the queue is rebuilt from the infection times
+    private void rescheduleTransitions() {
+        transitions.clear();
+        queuedTransitions.clear();
+        long now = System.currentTimeMillis();
+        getServer().getOnlinePlayers().forEach(player -> diseaseTable.forEachInfection(player.getUniqueId(), (id, infectedAt) -> {
+            DiseaseConfig config = ruleset.getDisease(id);
+            if (config != null) {
+                scheduleTransition(player.getUniqueId(), config, infectedAt, now);
+            }
+        }));
+    }
+
+    private void startBulkTask() {
+        scheduler.runTimer(timed(Probe.BULK, () -> bulkOperations.tick(ruleset.values.bulkTickBudgetNanos)), 1L, 1L);
+    }
+
+    private void startIntentTask() {
+        scheduler.runTimer(timed(Probe.INTENTS, this::drainIntents), 1L, 1L);
+    }
+
+    void drainIntents() {
+        Ruleset rules = ruleset;
+        intents.drain(intent -> {
+            Player player = getServer().getPlayer(intent.playerId());
+            DiseaseConfig config = rules.getDisease(intent.diseaseId());
+            if (player == null || config == null) return;
+            switch (intent.kind()) {
+                case INFECT -> applyDisease(player, config, Cause.TRIGGER);
+                case CONTAGION -> applyDisease(player, config, Cause.CONTAGION);
+                case TREAT -> {
+                    if (cureDisease(player, config, Cause.TREATMENT)) {
+                        tell(player, rules.prefix + ChatColor.GREEN + getTreatmentMessage(config.getTreatmentItem()));
+                    } else {
+                        refundTreatment(player, config);
+                    }
+                }
+            }
+        });
+    }
+
+    private void startEffectTask() {
+        scheduler.runTimer(timed(Probe.EFFECTS, () -> effects.flush(playerId -> getServer().getPlayer(playerId),
+                this::collectDesiredEffects, System.currentTimeMillis(), scheduler::runForPlayer)), 1L, 1L);
+    }
+
+    // Effects owed by the current stage of every disease the player has; stage-long effects end with the stage
+    private void collectDesiredEffects(UUID playerId, long now, EffectReconciler.EffectSink sink) {
+        Ruleset rules = ruleset;
+        diseaseTable.forEachInfection(playerId, (id, infectedAt) -> {
+            DiseaseConfig config = rules.getDisease(id);
+            if (config == null) return;
+            int stage = config.stageAt(now - infectedAt);
+            if (stage == config.getStageCount()) return;
+            long stageStart = infectedAt + config.getStageStart(stage);
+            long stageEnd = config.getStageEnd(stage) == Long.MAX_VALUE ? Long.MAX_VALUE : infectedAt + config.getStageEnd(stage);
+            for (PotionEffect effect : config.getStageEffects(stage)) {
+                long expiresAt = effect.isInfinite() ? Long.MAX_VALUE : Math.min(stageEnd, stageStart + effect.getDuration() * 50L);
+                sink.offer(effect.getType(), effect.getAmplifier(), expiresAt);
+            }
+        });
+    }
+
+    private Runnable timed(Probe probe, Runnable task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                metrics.record(probe, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private void startMetricsDumpTask() {
+        long interval = ruleset.values.metricsDumpInterval * 20L;
+        if (interval <= 0) return;
+        File log = new File(getDataFolder(), "metrics.log");
+        scheduler.runTimer(() -> {
+            List<String> lines = new ArrayList<>();
+            lines.add("[" + LocalDateTime.now() + "]");
+            lines.addAll(collectStats());
+            scheduler.runAsync(() -> {
+                try {
+                    Files.write(log.toPath(), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Failed to write " + log, e);
+                }
+            });
+        }, interval, interval);
+    }
+
+    private List<String> collectStats() {
+        Map<String, Integer> infectedNow = new HashMap<>();
+        ruleset.diseases.values().forEach(config -> infectedNow.put(config.getName(), diseaseTable.count(config.getId())));
+        List<String> lines = metrics.report(infectedNow);
+        lines.add("Кэш биомов: " + biomeCache.getHits() + " попаданий, " + biomeCache.getMisses() + " промахов, "
+                + biomeCache.size() + " чанков");
+        lines.add("Эффекты кашля: " + coughEffects.getPacketsSent() + " пакетов отправлено, "
+                + coughEffects.getPacketsDropped() + " отброшено");
+        lines.add("Очереди: " + coughWheel.size() + " кашляющих, " + environmentalSweep.size() + " на проверке окружения, "
+                + transitions.size() + " смен стадий, " + bulkOperations.size() + " массовых операций, "
+                + effects.pending() + " обновлений эффектов, " + intents.size() + " событий, "
+                + diseaseTable.size() + " болеющих игроков");
+        return lines;
+    }
+
+    // Everything that grows with players or activity, for harnesses watching for leaks over a long uptime
+    Map<String, Integer> stateSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put("infected", diseaseTable.size());
+        sizes.put("dirtyPlayers", dirtyPlayers.size());
+        sizes.put("pendingLoads", pendingLoads.size());
+        sizes.put("pendingWrites", diseaseStore.pending());
+        sizes.put("coughWheel", coughWheel.size());
+        sizes.put("environmentalSweep", environmentalSweep.size());
+        sizes.put("transitions", transitions.size());
+        sizes.put("effectsTracked", effects.tracked());
+        sizes.put("effectsPending", effects.pending());
+        sizes.put("intents", intents.size());
+        sizes.put("bulkOperations", bulkOperations.size());
+        sizes.put("biomeChunks", biomeCache.size());
+        if (sync != null) {
+            sizes.put("syncRemotePlayers", sync.remotePlayers());
+            sizes.put("syncUnsent", sync.unsent());
+        }
+        return sizes;
+    }
+
+    private boolean roll(double chance) {
+        return chance >= 1.0 || random.nextDouble() < chance;
+    }
+
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
         if (args.length == 0) {
             sendHelpMessage(sender);
             return true;
         }
+        // Read here, on the thread that owns the sender; commands themselves run on the global thread
+        Location origin = getSenderLocation(sender);
+        scheduler.runGlobal(() -> dispatchCommand(sender, args, origin));
+        return true;
+    }
 
+    private void dispatchCommand(CommandSender sender, String[] args, Location origin) {
         switch (args[0].toLowerCase()) {
             case "reload" -> handleReload(sender);
             case "give" -> handleGive(sender, args);
-            case "infect" -> handleInfect(sender, args);
-            case "cure" -> handleCure(sender, args);
+            case "infect" -> handleInfect(sender, args, origin);
+            case "cure" -> handleCure(sender, args, origin);
+            case "stats" -> handleStats(sender);
             default -> sendHelpMessage(sender);
         }
-        return true;
     }
 
     private void handleReload(CommandSender sender) {
         if (!sender.hasPermission("diseases.reload")) {
-            sender.sendMessage(prefix + ChatColor.RED + "Нет прав");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Нет прав");
             return;
         }
-        loadConfigurations();
-        sender.sendMessage(prefix + ChatColor.GREEN + "Плагин перезагружен");
+        reloadRuleset(sender);
     }
 
     private void handleGive(CommandSender sender, String[] args) {
         if (!sender.hasPermission("diseases.give") || args.length != 3) {
-            sender.sendMessage(prefix + ChatColor.RED + "Использование: /diseases give <игрок> <предмет>");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Использование: /diseases give <игрок> <предмет>");
             return;
         }
-        processPlayerItemCommand(sender, args[1], args[2], customItems,
-                item -> prefix + ChatColor.GREEN + "Выдали " + args[1] + " " + args[2]);
+        processPlayerItemCommand(sender, args[1], args[2], ruleset.items,
+                item -> ruleset.prefix + ChatColor.GREEN + "Выдали " + args[1] + " " + args[2]);
     }
 
-    private void handleInfect(CommandSender sender, String[] args) {
+    private void handleInfect(CommandSender sender, String[] args, Location origin) {
         if (!sender.hasPermission("diseases.infect") || args.length != 3) {
-            sender.sendMessage(prefix + ChatColor.RED + "Использование: /diseases infect <игрок> <болезнь>");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Использование: /diseases infect <игрок|селектор> <болезнь>");
+            return;
+        }
+        if (isSelector(args[1])) {
+            runBulkCommand(sender, args[1], args[2], true, origin);
             return;
         }
         processPlayerDiseaseCommand(sender, args[1], args[2], this::applyDisease,
-                disease -> prefix + ChatColor.GREEN + "Заразили " + args[1] + " болезнью " + args[2]);
+                disease -> ruleset.prefix + ChatColor.GREEN + "Заразили " + args[1] + " болезнью " + args[2]);
     }
 
-    private void handleCure(CommandSender sender, String[] args) {
+    private void handleCure(CommandSender sender, String[] args, Location origin) {
         if (!sender.hasPermission("diseases.cure") || args.length != 3) {
-            sender.sendMessage(prefix + ChatColor.RED + "Использование: /diseases cure <игрок> <болезнь>");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Использование: /diseases cure <игрок|селектор> <болезнь>");
+            return;
+        }
+        if (isSelector(args[1])) {
+            runBulkCommand(sender, args[1], args[2], false, origin);
             return;
         }
         processPlayerDiseaseCommand(sender, args[1], args[2], this::cureDisease,
-                disease -> prefix + ChatColor.GREEN + "Вылечили " + args[1] + " от болезни " + args[2]);
+                disease -> ruleset.prefix + ChatColor.GREEN + "Вылечили " + args[1] + " от болезни " + args[2]);
+    }
+
+    private boolean isSelector(String target) {
+        String lower = target.toLowerCase();
+        return lower.equals("all") || lower.startsWith("@a") || lower.startsWith("world:") || lower.endsWith("%");
+    }
+
+    // The sender gets a progress line every few seconds and one summary, however many players are affected
+    private void runBulkCommand(CommandSender sender, String selector, String diseaseName, boolean infect, Location origin) {
+        String disease = diseaseName.toLowerCase();
+        if (!ruleset.diseases.containsKey(disease)) {
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Неверное название болезни");
+            return;
+        }
+        selectPlayers(sender, selector, origin, targets -> runBulkOperation(sender, targets, disease, infect));
+    }
+
+    private void runBulkOperation(CommandSender sender, List<Player> targets, String disease, boolean infect) {
+        if (targets.isEmpty()) {
+            sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Под селектор не попал ни один игрок");
+            return;
+        }
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + (infect ? "Заражаем " : "Лечим ") + targets.size() + " игроков...");
+        BulkOperations.ProgressListener progress = (done, total) ->
+                sender.sendMessage(ruleset.prefix + ChatColor.GRAY + "Обработано " + done + " из " + total + " игроков");
+        CompletableFuture<Integer> result = bulkOperations.submit(targets,
+                player -> infect ? infect(player, disease) : cure(player, disease), progress);
+        result.whenComplete((affected, error) -> {
+            if (error != null) {
+                sender.sendMessage(ruleset.prefix + ChatColor.RED + "Операция прервана");
+            } else {
+                sender.sendMessage(ruleset.prefix + ChatColor.GREEN + (infect ? "Заражено " : "Вылечено ") + affected
+                        + " из " + targets.size() + " игроков болезнью " + disease);
+            }
+        });
+    }
+
+    // all, @a, @a[r=<радиус>], world:<мир> or <процент>% of online players, passed on on the global thread.
+    // Nothing is passed on after reporting a bad selector
+    private void selectPlayers(CommandSender sender, String selector, Location origin, Consumer<List<Player>> then) {
+        String lower = selector.toLowerCase();
+        if (lower.equals("all") || lower.equals("@a")) {
+            then.accept(new ArrayList<>(getServer().getOnlinePlayers()));
+            return;
+        }
+        if (lower.startsWith("world:")) {
+            World world = getServer().getWorld(selector.substring("world:".length()));
+            if (world == null) {
+                sender.sendMessage(ruleset.prefix + ChatColor.RED + "Мир не найден");
+                return;
+            }
+            then.accept(new ArrayList<>(world.getPlayers()));
+            return;
+        }
+        Matcher radius = RADIUS_SELECTOR.matcher(lower);
+        if (radius.matches()) {
+            if (origin == null || origin.getWorld() == null) {
+                sender.sendMessage(ruleset.prefix + ChatColor.RED + "Радиус можно указывать только игроку или командному блоку");
+                return;
+            }
+            selectWithin(origin, Double.parseDouble(radius.group(1)), then);
+            return;
+        }
+        Matcher percent = PERCENT_SELECTOR.matcher(lower);
+        if (percent.matches() && Integer.parseInt(percent.group(1)) <= 100) {
+            List<Player> players = new ArrayList<>(getServer().getOnlinePlayers());
+            Collections.shuffle(players, random);
+            then.accept(new ArrayList<>(players.subList(0, (int) Math.ceil(players.size() * Integer.parseInt(percent.group(1)) / 100.0))));
+            return;
+        }
+        sender.sendMessage(ruleset.prefix + ChatColor.RED + "Неверный селектор: " + selector);
+    }
+
+    // Every position is read on the thread that owns the player; the selection is passed on once all
+    // of them have answered, players who left in the meantime included
+    private void selectWithin(Location center, double radius, Consumer<List<Player>> then) {
+        List<Player> candidates = new ArrayList<>(center.getWorld().getPlayers());
+        if (candidates.isEmpty()) {
+            then.accept(candidates);
+            return;
+        }
+        double radiusSquared = radius * radius;
+        Queue<Player> within = new ConcurrentLinkedQueue<>();
+        AtomicInteger waiting = new AtomicInteger(candidates.size());
+        Runnable answered = () -> {
+            if (waiting.decrementAndGet() == 0) {
+                scheduler.runGlobal(() -> then.accept(new ArrayList<>(within)));
+            }
+        };
+        for (Player player : candidates) {
+            scheduler.runForPlayer(player, () -> {
+                Location location = player.getLocation();
+                if (center.getWorld().equals(location.getWorld()) && location.distanceSquared(center) <= radiusSquared) {
+                    within.add(player);
+                }
+                answered.run();
+            }, answered);
+        }
+    }
+
+    private Location getSenderLocation(CommandSender sender) {
+        if (sender instanceof Entity entity) return entity.getLocation();
+        if (sender instanceof BlockCommandSender block) return block.getBlock().getLocation();
+        return null;
+    }
+
+    private void handleStats(CommandSender sender) {
+        if (!sender.hasPermission("diseases.stats")) {
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Нет прав");
+            return;
+        }
+        collectStats().forEach(line -> sender.sendMessage(ruleset.prefix + ChatColor.GRAY + line));
     }
 
     private void processPlayerItemCommand(CommandSender sender, String playerName, String itemName,
                                           Map<String, ItemStack> items, Function<String, String> successMessage) {
         Player target = getServer().getPlayer(playerName);
         if (target == null) {
-            sender.sendMessage(prefix + ChatColor.RED + "Игрок не найден");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Игрок не найден");
             return;
         }
         ItemStack item = items.get(itemName.toLowerCase());
         if (item == null) {
-            sender.sendMessage(prefix + ChatColor.RED + "Неверное название предмета");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Неверное название предмета");
             return;
         }
-        target.getInventory().addItem(item.clone());
+        ItemStack given = item.clone();
+        scheduler.runForPlayer(target, () -> target.getInventory().addItem(given));
         sender.sendMessage(successMessage.apply(itemName));
     }
 
@@ -221,11 +980,11 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
                                              BiConsumer<Player, String> action, Function<String, String> successMessage) {
         Player target = getServer().getPlayer(playerName);
         if (target == null) {
-            sender.sendMessage(prefix + ChatColor.RED + "Игрок не найден");
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Игрок не найден");
             return;
         }
-        if (!diseaseConfigs.containsKey(diseaseName.toLowerCase())) {
-            sender.sendMessage(prefix + ChatColor.RED + "Неверное название болезни");
+        if (!ruleset.diseases.containsKey(diseaseName.toLowerCase())) {
+            sender.sendMessage(ruleset.prefix + ChatColor.RED + "Неверное название болезни");
             return;
         }
         action.accept(target, diseaseName);
@@ -233,28 +992,34 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
     }
 
     private void sendHelpMessage(CommandSender sender) {
-        sender.sendMessage(prefix + ChatColor.YELLOW + "Использование: /diseases <reload|give|infect|cure>");
-        sender.sendMessage(prefix + ChatColor.YELLOW + "Подсказка: /diseases give <игрок> <activated_charcoal|antibiotics|herbal_tea>");
-        sender.sendMessage(prefix + ChatColor.YELLOW + "Подсказка: /diseases infect <игрок> <болезнь>");
-        sender.sendMessage(prefix + ChatColor.YELLOW + "Подсказка: /diseases cure <игрок> <болезнь>");
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Использование: /diseases <reload|give|infect|cure|stats>");
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Подсказка: /diseases give <игрок> <activated_charcoal|antibiotics|herbal_tea>");
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Подсказка: /diseases infect <игрок> <болезнь>");
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Подсказка: /diseases cure <игрок> <болезнь>");
+        sender.sendMessage(ruleset.prefix + ChatColor.YELLOW + "Вместо игрока: all, @a[r=<радиус>], world:<мир> или <процент>%");
     }
 
     @Override
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String alias, @NotNull String[] args) {
         if (args.length == 1) {
-            return filterCompletions(Arrays.asList("reload", "give", "infect", "cure"), args[0]);
+            return filterCompletions(Arrays.asList("reload", "give", "infect", "cure", "stats"), args[0]);
         }
-        if (args.length == 2 && !"reload".equalsIgnoreCase(args[0])) {
-            return filterCompletions(getServer().getOnlinePlayers().stream()
+        if (args.length == 2 && !"reload".equalsIgnoreCase(args[0]) && !"stats".equalsIgnoreCase(args[0])) {
+            List<String> targets = getServer().getOnlinePlayers().stream()
                     .map(Player::getName)
-                    .collect(Collectors.toList()), args[1]);
+                    .collect(Collectors.toList());
+            if ("infect".equalsIgnoreCase(args[0]) || "cure".equalsIgnoreCase(args[0])) {
+                targets.addAll(Arrays.asList("all", "@a", "@a[r=", "10%"));
+                getServer().getWorlds().forEach(world -> targets.add("world:" + world.getName()));
+            }
+            return filterCompletions(targets, args[1]);
         }
         if (args.length == 3) {
             if ("give".equalsIgnoreCase(args[0])) {
-                return filterCompletions(customItems.keySet(), args[2]);
+                return filterCompletions(ruleset.items.keySet(), args[2]);
             }
             if ("infect".equalsIgnoreCase(args[0]) || "cure".equalsIgnoreCase(args[0])) {
-                return filterCompletions(diseaseConfigs.keySet(), args[2]);
+                return filterCompletions(ruleset.diseases.keySet(), args[2]);
             }
         }
         return Collections.emptyList();
@@ -268,29 +1033,34 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
 
     @EventHandler
     public void onItemConsume(PlayerItemConsumeEvent event) {
-        Player player = event.getPlayer();
-        ItemStack item = event.getItem();
+        long start = System.nanoTime();
+        try {
+            Player player = event.getPlayer();
+            ItemStack item = event.getItem();
 
-        if (item.getType() == Material.CHARCOAL) {
-            event.setCancelled(true);
-            return;
-        }
+            if (item.getType() == Material.CHARCOAL) {
+                event.setCancelled(true);
+                return;
+            }
+            if (item.getType() == Material.MILK_BUCKET) {
+                effects.clearApplied(player.getUniqueId());
+            }
 
-        handleTreatment(player, item, event.getHand());
-        checkFoodPoisoning(player, item);
+            handleTreatment(player, item, event.getHand());
+            checkFoodTriggers(player, item);
+        } finally {
+            metrics.record(Probe.ITEM_CONSUME, System.nanoTime() - start);
+        }
     }
 
-    private void handleTreatment(Player player, ItemStack item, EquipmentSlot hand) {
-        diseaseConfigs.values().forEach(config -> {
-            String treatment = config.getTreatmentItem();
-            if (treatment != null && item.isSimilar(customItems.get(treatment))) {
-                if (hasDisease(player, config.getName())) {
-                    cureDisease(player, config.getName());
-                    player.sendMessage(prefix + ChatColor.GREEN + getTreatmentMessage(treatment));
-                    adjustItemQuantity(player, item, hand);
-                }
+    // The item is used up right away, the cure itself follows with the next intent drain
+    void handleTreatment(Player player, ItemStack item, EquipmentSlot hand) {
+        for (DiseaseConfig config : getTreatedDiseases(item)) {
+            if (diseaseTable.has(player.getUniqueId(), config.getId())
+                    && intents.offer(player.getUniqueId(), config.getId(), IntentQueue.Kind.TREAT)) {
+                useUpTreatment(player, item, hand);
             }
-        });
+        }
     }
 
     private String getTreatmentMessage(String treatment) {
@@ -302,7 +1072,20 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
         };
     }
 
-    private void adjustItemQuantity(Player player, ItemStack item, EquipmentSlot hand) {
+    // The item was used up when the intent was queued; if the disease went away by other means in between, it comes back
+    private void refundTreatment(Player player, DiseaseConfig config) {
+        ItemStack item = getCustomItem(config.getTreatmentItem());
+        if (item == null) return;
+        item.setAmount(1);
+        String prefix = ruleset.prefix;
+        scheduler.runForPlayer(player, () -> {
+            player.getInventory().addItem(item).values()
+                    .forEach(left -> player.getWorld().dropItemNaturally(player.getLocation(), left));
+            player.sendMessage(prefix + ChatColor.YELLOW + "Болезнь уже прошла, лекарство возвращено.");
+        });
+    }
+
+    private void useUpTreatment(Player player, ItemStack item, EquipmentSlot hand) {
         if (item.getAmount() > 1) {
             item.setAmount(item.getAmount() - 1);
         } else {
@@ -310,17 +1093,32 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
         }
     }
 
-    private void checkFoodPoisoning(Player player, ItemStack item) {
-        List<String> rawFoods = configValues.rawFoodMaterials;
-        if (rawFoods.contains(item.getType().name()) || item.getType() == Material.ROTTEN_FLESH) {
-            applyDisease(player, "poisoning");
-        }
+    private void checkFoodTriggers(Player player, ItemStack item) {
+        applyTriggers(player, ruleset.getFoodTriggers(item.getType()), Cause.FOOD);
     }
 
     @EventHandler
     public void onEntityDamage(EntityDamageByEntityEvent event) {
-        if (event.getEntity() instanceof Player player && event.getDamager().getType() == EntityType.ZOMBIE) {
-            applyDisease(player, "bacterial_contamination");
+        if (event.getEntity() instanceof Player player) {
+            long start = System.nanoTime();
+            try {
+                applyTriggers(player, ruleset.getEntityTriggers(event.getDamager().getType()), Cause.ENTITY);
+            } finally {
+                metrics.record(Probe.ENTITY_DAMAGE, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // Every hit rolls on its own, but a player gets at most one queued infection per disease and tick
+    private void applyTriggers(Player player, Trigger[] triggers, Cause source) {
+        if (triggers == null) return;
+        UUID playerId = player.getUniqueId();
+        for (Trigger trigger : triggers) {
+            int id = trigger.disease().getId();
+            if (!diseaseTable.has(playerId, id) && roll(trigger.chance())) {
+                journal(Type.TRIGGER, source, player, id, (int) Math.round(trigger.chance() * 1_000_000));
+                intents.offer(playerId, id, IntentQueue.Kind.INFECT);
+            }
         }
     }
 
@@ -333,188 +1131,679 @@ public final class Disease extends JavaPlugin implements Listener, TabCompleter
         ItemStack item = event.getItem();
         if (item == null) return;
 
-        diseaseConfigs.values().forEach(config -> {
-            String treatment = config.getTreatmentItem();
-            if (treatment != null && item.isSimilar(customItems.get(treatment)) &&
-                    !"herbal_tea".equals(treatment) && hasDisease(player, config.getName())) {
-                cureDisease(player, config.getName());
-                player.sendMessage(prefix + ChatColor.GREEN + getTreatmentMessage(treatment));
-                item.setAmount(item.getAmount() - 1);
+        long start = System.nanoTime();
+        try {
+            for (DiseaseConfig config : getTreatedDiseases(item)) {
+                String treatment = config.getTreatmentItem();
+                if (!"herbal_tea".equals(treatment) && diseaseTable.has(player.getUniqueId(), config.getId())
+                        && intents.offer(player.getUniqueId(), config.getId(), IntentQueue.Kind.TREAT)) {
+                    useUpTreatment(player, item, event.getHand());
+                }
             }
-        });
+        } finally {
+            metrics.record(Probe.PLAYER_INTERACT, System.nanoTime() - start);
+        }
     }
 
     public void applyDisease(Player player, String diseaseName) {
-        DiseaseConfig config = diseaseConfigs.get(diseaseName);
-        if (config == null || hasDisease(player, diseaseName)) return;
+        scheduler.runGlobal(() -> infect(player, diseaseName));
+    }
 
-        DiseaseData data = diseaseData.computeIfAbsent(player.getUniqueId(), k -> new DiseaseData());
-        data.addDisease(diseaseName);
+    /**
+     * Infects the players a slice per tick, see {@code bulk.tick_budget_micros}. Call from the main thread, on Folia the global region thread.
+     * The future completes on the main thread with the number of players that were newly infected.
+     */
+    public CompletableFuture<Integer> applyDisease(Collection<? extends Player> players, String diseaseName) {
+        requireDisease(diseaseName);
+        return bulkOperations.submit(players, player -> infect(player, diseaseName), null);
+    }
+
+    /**
+     * Cures the players a slice per tick, see {@code bulk.tick_budget_micros}. Call from the main thread, on Folia the global region thread.
+     * The future completes on the main thread with the number of players that were cured.
+     */
+    public CompletableFuture<Integer> cureDisease(Collection<? extends Player> players, String diseaseName) {
+        requireDisease(diseaseName);
+        return bulkOperations.submit(players, player -> cure(player, diseaseName), null);
+    }
 
-        applyEffects(player, config.getEffects());
+    private void requireDisease(String diseaseName) {
+        if (!ruleset.diseases.containsKey(diseaseName)) {
+            throw new IllegalArgumentException("Unknown disease " + diseaseName);
+        }
+    }
+
+    private boolean infect(Player player, String diseaseName) {
+        DiseaseConfig config = ruleset.diseases.get(diseaseName);
+        return config != null && applyDisease(player, config, Cause.MANUAL);
+    }
+
+    private boolean cure(Player player, String diseaseName) {
+        DiseaseConfig config = ruleset.diseases.get(diseaseName);
+        return config != null && cureDisease(player, config, Cause.MANUAL);
+    }
+
+    private boolean applyDisease(Player player, DiseaseConfig config, Cause cause) {
+        long now = System.currentTimeMillis();
+        if (!diseaseTable.add(player.getUniqueId(), config.getId(), now)) return false;
+        markDirty(player.getUniqueId());
+        if (sync != null) {
+            sync.infected(player.getUniqueId(), config.getName(), now);
+        }
+        metrics.recordInfection(config.getName());
+        journal(Type.INFECTION, cause, player, config.getId(), 0);
+
+        effects.markDirty(player.getUniqueId());
         if (config.getStartMessage() != null) {
-            player.sendMessage(prefix + ChatColor.YELLOW + config.getStartMessage());
+            tell(player, ruleset.prefix + ChatColor.YELLOW + config.getStartMessage());
         }
-        if (COUGH_COLD.equals(diseaseName)) {
+        sendStageMessage(player, config, 0);
+        scheduleTransition(player.getUniqueId(), config, now, now);
+        if (COUGH_COLD.equals(config.getName())) {
             scheduleCoughTask(player);
         }
+        if (config.getTriggers().hasEnvironment()) {
+            environmentalSweep.add(player.getUniqueId());
+        }
+        return true;
     }
 
-    private void applyEffects(Player player, List<String> effects) {
-        effects.forEach(effect -> {
-            String[] parts = effect.split(":");
-            if (parts.length == 3) {
-                try {
-                    PotionEffectType type = PotionEffectType.getByName(parts[0].toUpperCase());
-                    int duration = Integer.parseInt(parts[1]) * 20;
-                    int amplifier = Integer.parseInt(parts[2]);
-                    player.addPotionEffect(new PotionEffect(type, duration, amplifier), true);
-                } catch (Exception e) {
-                    getLogger().warning("Invalid potion effect " + parts[0] + " for disease: " + effect);
-                }
-            }
-        });
+    private void sendStageMessage(Player player, DiseaseConfig config, int stage) {
+        String message = config.getStageMessage(stage);
+        if (message != null) {
+            tell(player, ruleset.prefix + ChatColor.YELLOW + message);
+        }
+    }
+
+    // Bookkeeping runs on the global thread; what reaches the player is sent from their own region
+    private void tell(Player player, String message) {
+        scheduler.runForPlayer(player, () -> player.sendMessage(message));
     }
 
     public void cureDisease(Player player, String diseaseName) {
-        DiseaseData data = diseaseData.get(player.getUniqueId());
-        if (data == null || !data.hasDisease(diseaseName)) return;
+        scheduler.runGlobal(() -> cure(player, diseaseName));
+    }
 
-        DiseaseConfig config = diseaseConfigs.get(diseaseName);
-        if (config != null) {
-            removeEffects(player, config.getEffects());
-            data.removeDisease(diseaseName);
-            if (config.getCureMessage() != null) {
-                player.sendMessage(prefix + ChatColor.GREEN + config.getCureMessage());
-            }
-            if (COUGH_COLD.equals(diseaseName)) {
-                cancelCoughTask(player);
-            }
+    private boolean cureDisease(Player player, DiseaseConfig config, Cause cause) {
+        if (!diseaseTable.remove(player.getUniqueId(), config.getId())) return false;
+        effects.markDirty(player.getUniqueId());
+        markDirty(player.getUniqueId());
+        if (sync != null) {
+            sync.cured(player.getUniqueId(), config.getName());
+        }
+        metrics.recordCure(config.getName());
+        journal(Type.CURE, cause, player, config.getId(), 0);
+        if (config.getCureMessage() != null) {
+            tell(player, ruleset.prefix + ChatColor.GREEN + config.getCureMessage());
         }
+        if (COUGH_COLD.equals(config.getName())) {
+            cancelCoughTask(player);
+        }
+        return true;
     }
 
-    private void removeEffects(Player player, List<String> effects) {
-        effects.forEach(effect -> {
-            String[] parts = effect.split(":");
-            try {
-                PotionEffectType type = PotionEffectType.getByName(parts[0].toUpperCase());
-                player.removePotionEffect(type);
-            } catch (Exception e) {
-                getLogger().warning("Invalid potion effect " + parts[0] + " for disease");
+    public boolean hasDisease(Player player, String diseaseName) {
+        int id = diseaseIds.find(diseaseName);
+        return id >= 0 && diseaseTable.has(player.getUniqueId(), id);
+    }
+
+    // Derived from the infection time on every call; returns null if the player does not have the disease
+    public String getDiseaseStage(Player player, String diseaseName) {
+        DiseaseConfig config = ruleset.diseases.get(diseaseName);
+        if (config == null) return null;
+        long infectedAt = diseaseTable.infectedAt(player.getUniqueId(), config.getId());
+        return infectedAt == Long.MIN_VALUE ? null : config.getStageName(System.currentTimeMillis() - infectedAt);
+    }
+
+    private void startCoughScheduler() {
+        coughWheel = new TimingWheel<>(ruleset.values.coughIntervalMax * 20 + 1);
+        scheduler.runTimer(timed(Probe.COUGH_SCHEDULER, () -> {
+            coughWheel.advance(this::onCoughDue);
+            ConfigValues values = ruleset.values;
+            if (scheduler.isRegionized()) {
+                coughEffects.flushRegionized(values.coughParticle, values.particleCount, values.coughSound,
+                        values.coughEffectRadius, values.coughEffectPacketBudget, scheduler::runForPlayer);
+            } else {
+                coughEffects.flush(getServer().getOnlinePlayers(), values.coughParticle, values.particleCount, values.coughSound,
+                        values.coughEffectRadius, values.coughEffectPacketBudget);
             }
-        });
+        }), 1L, 1L);
     }
 
-    public boolean hasDisease(Player player, String diseaseName) {
-        DiseaseData data = diseaseData.get(player.getUniqueId());
-        return data != null && data.hasDisease(diseaseName);
+    private void onCoughDue(UUID playerId) {
+        Player player = getServer().getPlayer(playerId);
+        DiseaseConfig config = ruleset.diseases.get(COUGH_COLD);
+        if (player == null || config == null || !diseaseTable.has(playerId, config.getId())) return;
+        triggerCough(player, Cause.SCHEDULE, config.getId());
+        coughWheel.schedule(playerId, ruleset.values.getCoughInterval(random) * 20);
     }
 
     private void scheduleCoughTask(Player player) {
-        if (coughTasks.containsKey(player.getUniqueId())) return;
-
-        BukkitRunnable task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!hasDisease(player, COUGH_COLD)) {
-                    cancel();
-                    coughTasks.remove(player.getUniqueId());
-                } else {
-                    triggerCough(player);
-                }
-            }
-        };
-        int delay = configValues.getCoughInterval(random);
-        coughTasks.put(player.getUniqueId(), task);
-        task.runTaskTimer(this, delay * 20L, delay * 20L);
+        if (!coughWheel.contains(player.getUniqueId())) {
+            coughWheel.schedule(player.getUniqueId(), ruleset.values.getCoughInterval(random) * 20);
+        }
     }
 
     private void cancelCoughTask(Player player) {
-        Optional.ofNullable(coughTasks.remove(player.getUniqueId())).ifPresent(BukkitRunnable::cancel);
+        coughWheel.cancel(player.getUniqueId());
     }
 
-    private void triggerCough(Player player) {
-        try {
-            player.playSound(player.getLocation(), configValues.coughSound, 1.0f, 1.0f);
-            player.getWorld().spawnParticle(Particle.valueOf(configValues.coughParticles.toUpperCase()),
-                    player.getLocation().add(0, 1.7, 0.2), configValues.particleCount,
-                    0.2, 0.2, 0.2, 0.01);
-        } catch (IllegalArgumentException e) {
-            getLogger().warning("Invalid sound/particle configuration: " + configValues.coughSound + "/" + configValues.coughParticles);
-        }
+    // Effects are batched and sent once per tick by the cough scheduler; the cough is journaled
+    // under the disease that caused it
+    private void triggerCough(Player player, Cause cause, int diseaseId) {
+        coughEffects.add(player);
+        journal(Type.COUGH, cause, player, diseaseId, 0);
+    }
+
+    // The location is read on the player's own thread; a player who left before that is journaled without one
+    private void journal(Type type, Cause cause, Player player, int diseaseId, int detail) {
+        EventJournal target = journal;
+        if (target == null) return;
+        UUID playerId = player.getUniqueId();
+        scheduler.runForPlayer(player, () -> {
+            Location location = player.getLocation();
+            target.append(type, cause, diseaseId, playerId, location.getBlockX(), location.getBlockY(), location.getBlockZ(), detail);
+        }, () -> target.append(type, cause, diseaseId, playerId, 0, 0, 0, detail));
     }
 
     private boolean isPlayerInColdBiome(Player player) {
-        World.Environment env = player.getWorld().getEnvironment();
+        World world = player.getWorld();
+        World.Environment env = world.getEnvironment();
         return env != World.Environment.NETHER && env != World.Environment.THE_END &&
-                configValues.coldBiomes.contains(player.getWorld().getBiome(player.getLocation()).name());
+                biomeCache.isCold(world, player.getLocation());
     }
 
-    private static final class DiseaseData {
-        private final Set<String> activeDiseases = ConcurrentHashMap.newKeySet();
+    @EventHandler
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        biomeCache.invalidate(event.getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+    }
 
-        void addDisease(String diseaseName) {
-            activeDiseases.add(diseaseName);
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent event) {
+        biomeCache.invalidate(event.getWorld());
+    }
+
+    /**
+     * Everything compiled from config.yml: settings, disease definitions, custom items and the
+     * trigger and treatment lookup tables. Immutable once built, so it can be compiled on any
+     * thread and read by the hot paths without locking.
+     */
+    private static final class Ruleset {
+        final String prefix;
+        final ConfigValues values;
+        final Map<String, DiseaseConfig> diseases;
+        final Map<String, ItemStack> items;
+        final DiseaseConfig[] environmentalDiseases;
+        final DiseaseConfig[] contagiousDiseases;
+        final int[] contagiousIds;
+        final double contagionCellSize;
+        private final DiseaseConfig[] diseasesById;
+        private final Map<String, DiseaseConfig[]> treatmentIndex;
+        private final EnumMap<Material, Trigger[]> foodTriggers = new EnumMap<>(Material.class);
+        private final EnumMap<EntityType, Trigger[]> entityTriggers = new EnumMap<>(EntityType.class);
+
+        private Ruleset(String prefix, ConfigValues values, Map<String, DiseaseConfig> diseases, Map<String, ItemStack> items) {
+            this.prefix = prefix;
+            this.values = values;
+            this.diseases = Collections.unmodifiableMap(diseases);
+            this.items = Collections.unmodifiableMap(items);
+
+            // Event handlers resolve triggers with a single EnumMap lookup, however many diseases are configured
+            Map<Material, List<Trigger>> food = new EnumMap<>(Material.class);
+            Map<EntityType, List<Trigger>> entities = new EnumMap<>(EntityType.class);
+            Map<String, List<DiseaseConfig>> treatments = new HashMap<>();
+            List<DiseaseConfig> environmental = new ArrayList<>();
+            List<DiseaseConfig> contagious = new ArrayList<>();
+            diseases.values().forEach(config -> {
+                Triggers triggers = config.getTriggers();
+                triggers.foods.forEach(material -> food.computeIfAbsent(material, k -> new ArrayList<>())
+                        .add(new Trigger(config, triggers.foodChance)));
+                triggers.entities.forEach(type -> entities.computeIfAbsent(type, k -> new ArrayList<>())
+                        .add(new Trigger(config, triggers.entityChance)));
+                if (config.getTreatmentItem() != null) {
+                    treatments.computeIfAbsent(config.getTreatmentItem(), k -> new ArrayList<>()).add(config);
+                }
+                if (triggers.hasEnvironment()) {
+                    environmental.add(config);
+                }
+                if (config.isContagious()) {
+                    contagious.add(config);
+                }
+            });
+            food.forEach((material, list) -> foodTriggers.put(material, list.toArray(NO_TRIGGERS)));
+            entities.forEach((type, list) -> entityTriggers.put(type, list.toArray(NO_TRIGGERS)));
+            Map<String, DiseaseConfig[]> index = new HashMap<>();
+            treatments.forEach((treatment, configs) -> index.put(treatment, configs.toArray(NO_DISEASES)));
+            this.treatmentIndex = index;
+            this.environmentalDiseases = environmental.toArray(NO_DISEASES);
+            this.contagiousDiseases = contagious.toArray(NO_DISEASES);
+            this.contagiousIds = contagious.stream().mapToInt(DiseaseConfig::getId).toArray();
+            this.diseasesById = new DiseaseConfig[diseases.values().stream().mapToInt(DiseaseConfig::getId).max().orElse(-1) + 1];
+            diseases.values().forEach(config -> diseasesById[config.getId()] = config);
+            this.contagionCellSize = contagious.stream().mapToDouble(DiseaseConfig::getContagionRadius).max().orElse(1.0);
+        }
+
+        // Blocking read of the file; safe to call off the main thread
+        static Ruleset load(File file, Configuration defaults, DiseaseIds ids, NamespacedKey itemKey, Logger logger)
+                throws IOException, InvalidConfigurationException {
+            YamlConfiguration config = new YamlConfiguration();
+            config.load(file);
+            if (defaults != null) {
+                config.setDefaults(defaults);
+            }
+            return compile(config, ids, itemKey, logger);
+        }
+
+        // Unknown names are skipped with a warning as before; values that would break the plugin reject the whole config
+        static Ruleset compile(ConfigurationSection config, DiseaseIds ids, NamespacedKey itemKey, Logger logger)
+                throws InvalidConfigurationException {
+            List<String> errors = new ArrayList<>();
+            ConfigValues values = new ConfigValues(config, logger);
+            if (values.coughIntervalMin < 1 || values.coughIntervalMax < values.coughIntervalMin) {
+                errors.add("cough_cold.cough_interval_min must be at least 1 and not above cough_interval_max");
+            }
+            Map<String, ItemStack> items = createCustomItems(itemKey);
+            Map<String, DiseaseConfig> diseases = new LinkedHashMap<>();
+            ConfigurationSection diseasesSection = config.getConfigurationSection("diseases");
+            if (diseasesSection != null) {
+                for (String diseaseName : diseasesSection.getKeys(false)) {
+                    ConfigurationSection section = diseasesSection.getConfigurationSection(diseaseName);
+                    if (section == null) {
+                        errors.add("diseases." + diseaseName + " is not a section");
+                        continue;
+                    }
+                    DiseaseConfig disease;
+                    try {
+                        disease = new DiseaseConfig(ids.intern(diseaseName), diseaseName, section, values, logger);
+                    } catch (InvalidConfigurationException e) {
+                        errors.add(e.getMessage());
+                        continue;
+                    }
+                    validate(disease, items, errors);
+                    diseases.put(diseaseName, disease);
+                }
+            }
+            if (diseases.isEmpty() && errors.isEmpty()) {
+                errors.add("no diseases are defined");
+            }
+            if (!errors.isEmpty()) {
+                throw new InvalidConfigurationException(String.join("; ", errors));
+            }
+            String prefix = ChatColor.translateAlternateColorCodes('&', config.getString("prefix", "&7[&cБолезни&7] &r"));
+            return new Ruleset(prefix, values, diseases, items);
         }
 
-        void removeDisease(String diseaseName) {
-            activeDiseases.remove(diseaseName);
+        private static void validate(DiseaseConfig disease, Map<String, ItemStack> items, List<String> errors) {
+            String name = disease.getName();
+            if (disease.getTreatmentItem() != null && !items.containsKey(disease.getTreatmentItem())) {
+                errors.add("disease " + name + " uses unknown treatment_item '" + disease.getTreatmentItem() + "'");
+            }
+            Triggers triggers = disease.getTriggers();
+            checkChance(name, "food chance", triggers.foodChance, errors);
+            checkChance(name, "entity chance", triggers.entityChance, errors);
+            checkChance(name, "wet chance", triggers.wetChance, errors);
+            checkChance(name, "cold_biome chance", triggers.coldBiomeChance, errors);
+            checkChance(name, "contagion chance", disease.getContagionChance(), errors);
         }
 
-        boolean hasDisease(String diseaseName) {
-            return activeDiseases.contains(diseaseName);
+        private static void checkChance(String diseaseName, String what, double chance, List<String> errors) {
+            if (chance < 0 || chance > 1 || Double.isNaN(chance)) {
+                errors.add("disease " + diseaseName + " has " + what + " " + chance + " outside 0..1");
+            }
+        }
+
+        private static Map<String, ItemStack> createCustomItems(NamespacedKey itemKey) {
+            Map<String, ItemStack> items = new LinkedHashMap<>();
+            items.put("activated_charcoal", createCustomItem(itemKey, "activated_charcoal", Material.CHARCOAL,
+                    ChatColor.GRAY + "Активированный уголь", ChatColor.GRAY + "Помогает выводить токсины."));
+            items.put("antibiotics", createCustomItem(itemKey, "antibiotics", Material.PAPER,
+                    ChatColor.BLUE + "Антибиотики", ChatColor.BLUE + "Борется с бактериальными инфекциями."));
+            items.put("herbal_tea", createCustomItem(itemKey, "herbal_tea", Material.POTION,
+                    ChatColor.GREEN + "Травяной чай", ChatColor.GREEN + "Успокаивает кашель и простуду."));
+            return items;
+        }
+
+        private static ItemStack createCustomItem(NamespacedKey itemKey, String id, Material material, String name, String lore) {
+            ItemStack item = new ItemStack(material);
+            ItemMeta meta = item.getItemMeta();
+            if (meta != null) {
+                meta.setDisplayName(name);
+                meta.setLore(Collections.singletonList(lore));
+                meta.getPersistentDataContainer().set(itemKey, PersistentDataType.STRING, id);
+                item.setItemMeta(meta);
+            }
+            return item;
+        }
+
+        // Null for ids of diseases this ruleset does not define
+        DiseaseConfig getDisease(int id) {
+            return id < diseasesById.length ? diseasesById[id] : null;
+        }
+
+        DiseaseConfig[] getTreatedDiseases(String treatment) {
+            return treatmentIndex.getOrDefault(treatment, NO_DISEASES);
+        }
+
+        Trigger[] getFoodTriggers(Material material) {
+            return foodTriggers.get(material);
+        }
+
+        Trigger[] getEntityTriggers(EntityType type) {
+            return entityTriggers.get(type);
         }
     }
 
     private static final class DiseaseConfig {
+        private final int id;
         private final String name;
-        private final List<String> effects;
+        private final boolean staged;
+        private final Stage[] stages;
+        // Per stage: time since infection of the next boundary with effects or a message to change, -1 if none
+        private final long[] nextTransitions;
         private final String startMessage;
         private final String cureMessage;
         private final String treatmentItem;
+        private final Triggers triggers;
+        private final double contagionRadius;
+        private final double contagionChance;
 
-        DiseaseConfig(String name, ConfigurationSection config) {
+        DiseaseConfig(int id, String name, ConfigurationSection config, ConfigValues values, Logger logger)
+                throws InvalidConfigurationException {
+            this.id = id;
             this.name = name;
-            this.effects = config.getStringList("effects");
+            ConfigurationSection stagesSection = config.getConfigurationSection("stages");
+            this.staged = stagesSection != null && !stagesSection.getKeys(false).isEmpty();
+            // Without stages the disease keeps its one-shot effects and lasts until treated
+            this.stages = staged ? compileStages(name, stagesSection, logger) : new Stage[]{
+                    new Stage("active", Long.MAX_VALUE, compileEffects(name, config.getStringList("effects"), 0, logger), null)};
+            this.nextTransitions = new long[stages.length];
+            for (int i = 0; i < stages.length; i++) {
+                nextTransitions[i] = findNextTransition(i);
+            }
             this.startMessage = translateColors(config.getString("start_message", ""));
             this.cureMessage = translateColors(config.getString("cure_message", ""));
             this.treatmentItem = config.getString("treatment_item");
+            // Decided by the server's own file only: the bundled defaults carry triggers and contagion for the
+            // built-in diseases, which would otherwise override old configs and come back after being deleted
+            this.triggers = config.contains("triggers", true)
+                    ? new Triggers(name, Objects.requireNonNull(config.getConfigurationSection("triggers")), logger)
+                    : Triggers.legacy(name, values);
+            this.contagionRadius = Math.max(0.0, ownDouble(config, "contagion.radius", 0.0));
+            this.contagionChance = Math.max(0.0, ownDouble(config, "contagion.chance", 0.0));
+        }
+
+        static double ownDouble(ConfigurationSection config, String path, double fallback) {
+            return config.contains(path, true) ? config.getDouble(path) : fallback;
+        }
+
+        static List<String> ownStringList(ConfigurationSection config, String path) {
+            return config.contains(path, true) ? config.getStringList(path) : List.of();
         }
 
         private String translateColors(String text) {
             return ChatColor.translateAlternateColorCodes('&', text);
         }
 
+        private static Stage[] compileStages(String diseaseName, ConfigurationSection section, Logger logger)
+                throws InvalidConfigurationException {
+            List<String> names = new ArrayList<>(section.getKeys(false));
+            Stage[] stages = new Stage[names.size()];
+            long start = 0;
+            for (int i = 0; i < stages.length; i++) {
+                ConfigurationSection stage = section.getConfigurationSection(names.get(i));
+                if (stage == null) {
+                    throw new InvalidConfigurationException("stage " + names.get(i) + " of disease " + diseaseName + " is not a section");
+                }
+                long duration = stage.getLong("duration", 0) * 1000L;
+                if (duration <= 0 && i < stages.length - 1) {
+                    throw new InvalidConfigurationException("stage " + names.get(i) + " of disease " + diseaseName
+                            + " needs a positive duration, only the last stage may last until treated");
+                }
+                long end = duration > 0 ? start + duration : Long.MAX_VALUE;
+                int stageTicks = duration > 0 ? (int) Math.min(Integer.MAX_VALUE, duration / 50) : PotionEffect.INFINITE_DURATION;
+                String message = stage.getString("message");
+                stages[i] = new Stage(names.get(i), end, compileEffects(diseaseName, stage.getStringList("effects"), stageTicks, logger),
+                        message == null || message.isEmpty() ? null : ChatColor.translateAlternateColorCodes('&', message));
+                start = end;
+            }
+            return stages;
+        }
+
+        private long findNextTransition(int stage) {
+            for (int next = stage + 1; next < stages.length; next++) {
+                // Effects of a stage end with it, so any stage with effects on either side of the boundary needs one
+                if (stages[next].message() != null || stages[next].effects().length > 0 || stages[next - 1].effects().length > 0) {
+                    return stages[next - 1].end();
+                }
+            }
+            long end = stages[stages.length - 1].end();
+            return end == Long.MAX_VALUE ? -1 : end;
+        }
+
+        // Effects are parsed once here so infect/cure only hand prebuilt, immutable PotionEffects to the player.
+        // Inside a stage, "EFFECT:LEVEL" lasts for the whole stage (stageTicks)
+        private static PotionEffect[] compileEffects(String diseaseName, List<String> entries, int stageTicks, Logger logger) {
+            List<PotionEffect> compiled = new ArrayList<>(entries.size());
+            for (String entry : entries) {
+                PotionEffect effect = parseEffect(entry, stageTicks);
+                if (effect == null) {
+                    logger.warning("Invalid potion effect '" + entry + "' for disease " + diseaseName + ", skipping");
+                } else {
+                    compiled.add(effect);
+                }
+            }
+            return compiled.toArray(new PotionEffect[0]);
+        }
+
+        private static PotionEffect parseEffect(String entry, int stageTicks) {
+            String[] parts = entry.split(":");
+            if (parts.length != 3 && (parts.length != 2 || stageTicks == 0)) return null;
+            PotionEffectType type = PotionEffectType.getByName(parts[0].trim().toUpperCase());
+            if (type == null) return null;
+            try {
+                int duration = parts.length == 3 ? Integer.parseInt(parts[1].trim()) * 20 : stageTicks;
+                int amplifier = Integer.parseInt(parts[parts.length - 1].trim());
+                return (duration > 0 || duration == PotionEffect.INFINITE_DURATION) && amplifier >= 0
+                        ? new PotionEffect(type, duration, amplifier) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        int getId() { return id; }
         String getName() { return name; }
-        List<String> getEffects() { return effects; }
+        boolean isStaged() { return staged; }
         String getStartMessage() { return startMessage; }
         String getCureMessage() { return cureMessage; }
         String getTreatmentItem() { return treatmentItem; }
+        Triggers getTriggers() { return triggers; }
+        double getContagionRadius() { return contagionRadius; }
+        double getContagionChance() { return contagionChance; }
+        boolean isContagious() { return contagionRadius > 0 && contagionChance > 0; }
+
+        // Stage index for the time since infection, or the number of stages once the disease has run its course
+        int stageAt(long elapsedMillis) {
+            for (int i = 0; i < stages.length; i++) {
+                if (elapsedMillis < stages[i].end()) return i;
+            }
+            return stages.length;
+        }
+
+        boolean isRecovered(long elapsedMillis) {
+            return elapsedMillis >= stages[stages.length - 1].end();
+        }
+
+        String getStageName(long elapsedMillis) {
+            return stages[Math.min(stageAt(elapsedMillis), stages.length - 1)].name();
+        }
+
+        int getStageCount() { return stages.length; }
+        long getStageStart(int stage) { return stage == 0 ? 0 : stages[stage - 1].end(); }
+        long getStageEnd(int stage) { return stages[stage].end(); }
+        PotionEffect[] getStageEffects(int stage) { return stages[stage].effects(); }
+        String getStageMessage(int stage) { return stages[stage].message(); }
+        long nextTransitionAfter(int stage) { return nextTransitions[stage]; }
+    }
+
+    // end is the time since infection at which the stage is over, Long.MAX_VALUE if it lasts until treated
+    private record Stage(String name, long end, PotionEffect[] effects, String message) {
+    }
+
+    private record Transition(UUID playerId, int diseaseId, long infectedAt, long dueAt) {
+    }
+
+    private record Trigger(DiseaseConfig disease, double chance) {
+    }
+
+    private static final class Triggers {
+        final Set<Material> foods;
+        final double foodChance;
+        final Set<EntityType> entities;
+        final double entityChance;
+        final double wetChance;
+        final double coldBiomeChance;
+
+        Triggers(String diseaseName, ConfigurationSection config, Logger logger) {
+            foods = EnumSet.noneOf(Material.class);
+            DiseaseConfig.ownStringList(config, "food.materials").forEach(name -> {
+                Material material = Material.matchMaterial(name.trim());
+                if (material == null) {
+                    logger.warning("Unknown food material '" + name + "' in triggers of disease " + diseaseName + ", skipping");
+                } else {
+                    foods.add(material);
+                }
+            });
+            foodChance = DiseaseConfig.ownDouble(config, "food.chance", 1.0);
+            entities = EnumSet.noneOf(EntityType.class);
+            DiseaseConfig.ownStringList(config, "entities.types").forEach(name -> {
+                try {
+                    entities.add(EntityType.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Unknown entity type '" + name + "' in triggers of disease " + diseaseName + ", skipping");
+                }
+            });
+            entityChance = DiseaseConfig.ownDouble(config, "entities.chance", 1.0);
+            wetChance = DiseaseConfig.ownDouble(config, "environment.wet", 0.0);
+            coldBiomeChance = DiseaseConfig.ownDouble(config, "environment.cold_biome", 0.0);
+        }
+
+        private Triggers(Set<Material> foods, double foodChance, Set<EntityType> entities, double entityChance,
+                         double wetChance, double coldBiomeChance) {
+            this.foods = foods;
+            this.foodChance = foodChance;
+            this.entities = entities;
+            this.entityChance = entityChance;
+            this.wetChance = wetChance;
+            this.coldBiomeChance = coldBiomeChance;
+        }
+
+        // Configs written before the triggers section existed keep their hardcoded behaviour
+        static Triggers legacy(String diseaseName, ConfigValues values) {
+            Set<Material> foods = EnumSet.noneOf(Material.class);
+            Set<EntityType> entities = EnumSet.noneOf(EntityType.class);
+            double wetChance = 0;
+            double coldBiomeChance = 0;
+            switch (diseaseName) {
+                case "poisoning" -> {
+                    values.rawFoodMaterials.forEach(name -> Optional.ofNullable(Material.matchMaterial(name)).ifPresent(foods::add));
+                    foods.add(Material.ROTTEN_FLESH);
+                }
+                case "bacterial_contamination" -> entities.add(EntityType.ZOMBIE);
+                case COUGH_COLD -> {
+                    wetChance = values.wetIncrease;
+                    coldBiomeChance = values.coldBiomeIncrease;
+                }
+                default -> { }
+            }
+            return new Triggers(foods, 1.0, entities, 1.0, wetChance, coldBiomeChance);
+        }
+
+        boolean hasEnvironment() {
+            return wetChance > 0 || coldBiomeChance > 0;
+        }
     }
 
     private static final class ConfigValues {
         final double wetIncrease;
         final double coldBiomeIncrease;
         final String coughSound;
-        final String coughParticles;
+        final Particle coughParticle;
         final int particleCount;
         final int coughIntervalMin;
         final int coughIntervalMax;
         final boolean randomCoughInterval;
-        final Set<String> coldBiomes;
+        final Set<Biome> coldBiomes;
         final List<String> rawFoodMaterials;
+        final int storageFlushInterval;
+        final int storageShutdownTimeout;
+        final long environmentTickBudgetNanos;
+        final int biomeCacheChunks;
+        final long contagionInterval;
+        final double coughEffectRadius;
+        final int coughEffectPacketBudget;
+        final int metricsDumpInterval;
+        final boolean watchConfig;
+        final long bulkTickBudgetNanos;
+        final boolean journalEnabled;
+        final long journalSegmentBytes;
+        final int journalMaxSegments;
+        final String syncTransport;
+        final int syncHandOffTtl;
 
-        ConfigValues(org.bukkit.configuration.file.FileConfiguration config) {
+        ConfigValues(ConfigurationSection config, Logger logger) {
             wetIncrease = config.getDouble("cough_cold.wet_increase", 10) / 100.0;
             coldBiomeIncrease = config.getDouble("cough_cold.cold_biome_increase", 10) / 100.0;
-            coughSound = config.getString("cough_cold.sound", "minecraft:block.cherry_wood_button.click_off");
-            coughParticles = config.getString("cough_cold.particles", "SMOKE_NORMAL");
+            coughSound = compileSound(config.getString("cough_cold.sound", "minecraft:block.cherry_wood_button.click_off"));
+            coughParticle = compileParticle(config.getString("cough_cold.particles", "SMOKE_NORMAL"), logger);
             particleCount = config.getInt("cough_cold.particle_count", 5);
             coughIntervalMin = config.getInt("cough_cold.cough_interval_min", 3);
             coughIntervalMax = config.getInt("cough_cold.cough_interval_max", 5);
             randomCoughInterval = config.getBoolean("cough_cold.random_cough_interval", true);
-            coldBiomes = new HashSet<>(config.getStringList("cough_cold.cold_biomes"));
+            coldBiomes = compileBiomes(config.getStringList("cough_cold.cold_biomes"), logger);
             rawFoodMaterials = config.getStringList("poisoning.raw_food");
+            storageFlushInterval = Math.max(1, config.getInt("storage.flush_interval", 10));
+            storageShutdownTimeout = Math.max(1, config.getInt("storage.shutdown_timeout", 5));
+            environmentTickBudgetNanos = Math.max(1, config.getInt("environment.tick_budget_micros", 500)) * 1000L;
+            biomeCacheChunks = config.getInt("environment.biome_cache_chunks", 4096);
+            contagionInterval = Math.max(1, config.getInt("contagion.check_interval", 20));
+            coughEffectRadius = Math.max(1.0, config.getDouble("cough_cold.effect_radius", 24.0));
+            coughEffectPacketBudget = Math.max(1, config.getInt("cough_cold.max_effect_packets_per_tick", 400));
+            metricsDumpInterval = Math.max(0, config.getInt("metrics.dump_interval", 0));
+            watchConfig = config.getBoolean("reload.watch_config", false);
+            bulkTickBudgetNanos = Math.max(1, config.getInt("bulk.tick_budget_micros", 2000)) * 1000L;
+            journalEnabled = config.getBoolean("journal.enabled", true);
+            journalSegmentBytes = Math.min(1024, Math.max(1, config.getInt("journal.segment_size_mb", 8))) * 1024L * 1024L;
+            journalMaxSegments = Math.max(1, config.getInt("journal.max_segments", 32));
+            syncTransport = config.getString("sync.transport", "none").trim().toLowerCase(Locale.ROOT);
+            syncHandOffTtl = Math.max(1, config.getInt("sync.handoff_ttl_seconds", 60));
+        }
+
+        private static String compileSound(String sound) {
+            return sound == null || sound.isBlank() ? null : sound.trim();
+        }
+
+        // Particles with extra data cannot be sent without it, so they are rejected like unknown names
+        private static Particle compileParticle(String name, Logger logger) {
+            if (name == null || name.isBlank()) return null;
+            try {
+                Particle particle = Particle.valueOf(name.trim().toUpperCase());
+                if (particle.getDataType() == Void.class) return particle;
+            } catch (IllegalArgumentException ignored) {
+            }
+            logger.warning("Invalid cough particle '" + name + "', coughs will have no particles");
+            return null;
+        }
+
+        private static Set<Biome> compileBiomes(List<String> names, Logger logger) {
+            Set<Biome> biomes = EnumSet.noneOf(Biome.class);
+            for (String name : names) {
+                try {
+                    biomes.add(Biome.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Unknown cold biome '" + name + "', skipping");
+                }
+            }
+            return biomes;
         }
 
         int getCoughInterval(Random random) {
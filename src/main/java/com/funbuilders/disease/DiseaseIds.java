@@ -0,0 +1,40 @@
+package com.funbuilders.disease;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns disease names to small dense ids, the bit positions used by {@link DiseaseTable}.
+ * Ids are never reassigned, so they stay valid across reloads, including for diseases a reload
+ * removed. Interning may run on the reload thread; lookups never lock.
+ */
+final class DiseaseIds {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        String[] current = names;
+        String[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = name;
+        // The name is published before the id, so name(id) works for every id a reader can see
+        names = grown;
+        ids.put(name, current.length);
+        return current.length;
+    }
+
+    int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,118 @@
+package com.funbuilders.disease;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * File-backed store for per-player disease state (disease name to infection time in epoch
+ * millis) with coalescing write-behind.
+ * Snapshots are staged from the main thread and written by a single background writer;
+ * a player staged several times before a flush is written once, with the latest state.
+ */
+final class DiseaseStore {
+    private static final String DISEASES_PATH = "diseases";
+
+    private final Path directory;
+    private final Logger logger;
+    private final Map<UUID, Map<String, Long>> pendingWrites = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Disease-Storage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    DiseaseStore(File directory, Logger logger) {
+        this.directory = directory.toPath();
+        this.logger = logger;
+    }
+
+    void stage(UUID playerId, Map<String, Long> diseases) {
+        pendingWrites.put(playerId, Map.copyOf(diseases));
+    }
+
+    int pending() {
+        return pendingWrites.size();
+    }
+
+    void flush() {
+        if (!pendingWrites.isEmpty()) {
+            writer.execute(this::drain);
+        }
+    }
+
+    // Blocking read; callers must stay off the main thread
+    Map<String, Long> load(UUID playerId) {
+        Map<String, Long> pending = pendingWrites.get(playerId);
+        if (pending != null) return pending;
+
+        File file = fileFor(playerId).toFile();
+        if (!file.isFile()) return Collections.emptyMap();
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        Map<String, Long> diseases = new HashMap<>();
+        ConfigurationSection section = yaml.getConfigurationSection(DISEASES_PATH);
+        if (section != null) {
+            section.getKeys(false).forEach(name -> diseases.put(name, section.getLong(name)));
+        }
+        return Map.copyOf(diseases);
+    }
+
+    void close(long timeoutMillis) {
+        writer.execute(this::drain);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warning("Timed out saving disease data, " + pendingWrites.size() + " players not saved");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        for (Map.Entry<UUID, Map<String, Long>> entry : pendingWrites.entrySet()) {
+            UUID playerId = entry.getKey();
+            Map<String, Long> diseases = entry.getValue();
+            try {
+                write(playerId, diseases);
+                // Keep a newer snapshot staged while we were writing
+                pendingWrites.remove(playerId, diseases);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to save disease data for " + playerId, e);
+            }
+        }
+    }
+
+    private void write(UUID playerId, Map<String, Long> diseases) throws IOException {
+        Path file = fileFor(playerId);
+        if (diseases.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Files.createDirectories(directory);
+        YamlConfiguration yaml = new YamlConfiguration();
+        diseases.forEach((name, infectedAt) -> yaml.set(DISEASES_PATH + "." + name, infectedAt));
+        Path temp = directory.resolve(playerId + ".yml.tmp");
+        Files.writeString(temp, yaml.saveToString(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path fileFor(UUID playerId) {
+        return directory.resolve(playerId + ".yml");
+    }
+}
@@ -0,0 +1,334 @@
+package com.funbuilders.disease;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Keeps players' diseases in step across the servers behind a proxy. Infections and cures made
+ * here go out as compact deltas, batched into as few messages as possible once per tick, and a
+ * full snapshot goes out when a player's state is settled on join, again well within the hand-off
+ * TTL while they stay, and when they leave.
+ * What other servers send is kept per player, so a player switching servers gets their state
+ * from memory while the join is still being handled, without waiting for storage.
+ * Every update carries the player's version, which each change bumps; updates that are not newer
+ * than what is already known are stale and dropped. Taking a player over is not a change, so the
+ * new server goes on from the version it was handed, and the previous server's last changes, which
+ * may share versions with the new server's own, are checked only against each other.
+ * A player's remote state is forgotten once no update about them has arrived for the hand-off TTL,
+ * and is never handed off when older than that.
+ * Messages may arrive on any thread; everything else belongs to the global thread.
+ */
+final class DiseaseSync {
+    private static final int MAGIC = 0x44535943;
+    private static final byte FORMAT = 1;
+    // Magic, format and update count
+    private static final int HEADER_SIZE = 4 + 1 + 2;
+    // Kind, player, version and disease count
+    private static final int UPDATE_SIZE = 1 + 16 + 8 + 2;
+    private static final int MAX_UNSENT = 256;
+    private static final long EXPIRY_INTERVAL = 1000L;
+
+    private final SyncTransport transport;
+    private final StateSink sink;
+    private final long handOffTtlMillis;
+    private final long refreshMillis;
+    private final Logger logger;
+    private final Queue<Update> inbound = new ConcurrentLinkedQueue<>();
+    private final List<Update> outbound = new ArrayList<>();
+    private final ArrayDeque<byte[]> unsent = new ArrayDeque<>();
+    // Players on this server whose state is settled
+    private final Map<UUID, LocalState> local = new HashMap<>();
+    // Last known state of players on other servers; kept while updates about them keep coming
+    private final Map<UUID, RemoteState> remote = new HashMap<>();
+    private long now;
+    private long nextExpiry;
+    private long dropped;
+
+    DiseaseSync(SyncTransport transport, StateSink sink, long handOffTtlMillis, Logger logger) {
+        this.transport = transport;
+        this.sink = sink;
+        this.handOffTtlMillis = handOffTtlMillis;
+        this.refreshMillis = Math.max(1L, handOffTtlMillis / 3);
+        this.logger = logger;
+    }
+
+    void start() {
+        transport.start(this::receive);
+    }
+
+    void infected(UUID playerId, String disease, long infectedAt) {
+        publish(Kind.INFECT, playerId, Map.of(disease, infectedAt));
+    }
+
+    void cured(UUID playerId, String disease) {
+        publish(Kind.CURE, playerId, Map.of(disease, 0L));
+    }
+
+    // Once the player's state is in place after joining, whether handed off or loaded from storage. Until
+    // then what arrives about them is kept as remote state; a stale one may have missed changes that storage
+    // has, so only its version is carried on. Nothing changed, so the version is not bumped
+    void established(UUID playerId, Map<String, Long> diseases) {
+        RemoteState state = remote.remove(playerId);
+        LocalState player = new LocalState(state == null ? 0L : state.version);
+        local.put(playerId, player);
+        send(Kind.SNAPSHOT, playerId, player, diseases);
+    }
+
+    // Leaving is not a change, so the version stays; the server the player moves to may already be past it.
+    // diseases is null for a player whose state never finished loading
+    void left(UUID playerId, Map<String, Long> diseases) {
+        LocalState player = local.remove(playerId);
+        if (player != null && diseases != null) {
+            outbound.add(new Update(Kind.LEFT, playerId, player.version, Map.copyOf(diseases)));
+        }
+    }
+
+    // Returns the player's state if another server handed it off, null if it has to come from storage.
+    // Whatever has arrived is applied first, so the state is as fresh as possible. Asked again once storage
+    // has answered, as the hand-off may arrive in the meantime
+    Map<String, Long> handOff(UUID playerId, long now) {
+        drainInbound(now);
+        RemoteState state = remote.get(playerId);
+        if (state == null || !state.complete || now - state.updatedAt > handOffTtlMillis) return null;
+        return Map.copyOf(state.diseases);
+    }
+
+    void tick(long now) {
+        drainInbound(now);
+        if (now >= nextExpiry) {
+            nextExpiry = now + Math.min(EXPIRY_INTERVAL, refreshMillis);
+            remote.values().removeIf(state -> now - state.updatedAt > handOffTtlMillis);
+            // Other servers would otherwise forget players who stay here without changes
+            local.forEach((playerId, player) -> {
+                if (now - player.sentAt >= refreshMillis) {
+                    send(Kind.SNAPSHOT, playerId, player, sink.current(playerId));
+                }
+            });
+        }
+        flush();
+    }
+
+    void close() {
+        flush();
+        transport.close();
+        if (!unsent.isEmpty()) {
+            logger.warning("Server sync closed with " + unsent.size() + " messages unsent");
+        }
+    }
+
+    int remotePlayers() {
+        return remote.size();
+    }
+
+    int unsent() {
+        return unsent.size();
+    }
+
+    // Changes to a player still loading are in the snapshot that settles them
+    private void publish(Kind kind, UUID playerId, Map<String, Long> diseases) {
+        LocalState player = local.get(playerId);
+        if (player == null) return;
+        player.version++;
+        send(kind, playerId, player, diseases);
+    }
+
+    private void send(Kind kind, UUID playerId, LocalState player, Map<String, Long> diseases) {
+        player.sentAt = now;
+        outbound.add(new Update(kind, playerId, player.version, Map.copyOf(diseases)));
+    }
+
+    private void receive(byte[] message) {
+        try {
+            inbound.addAll(decode(message));
+        } catch (RuntimeException e) {
+            logger.warning("Dropped malformed sync message: " + e);
+        }
+    }
+
+    private void drainInbound(long now) {
+        this.now = now;
+        Update update;
+        while ((update = inbound.poll()) != null) {
+            apply(update, now);
+        }
+    }
+
+    private void apply(Update update, long now) {
+        UUID playerId = update.playerId();
+        LocalState player = local.get(playerId);
+        if (player != null) {
+            // The player is here, e.g. the old server's last changes arriving right after a switch. Its
+            // snapshots only describe what this server has taken over
+            if (update.version() <= player.remoteVersion || update.kind() == Kind.SNAPSHOT || update.kind() == Kind.LEFT) return;
+            player.remoteVersion = update.version();
+            // Later changes made here have to be newer everywhere
+            player.version = Math.max(player.version, update.version());
+            applyLocally(update);
+            return;
+        }
+        RemoteState state = remote.get(playerId);
+        if (update.kind() == Kind.SNAPSHOT || update.kind() == Kind.LEFT) {
+            if (state != null && update.version() < state.version) return;
+            remote.put(playerId, new RemoteState(update.version(), new HashMap<>(update.diseases()), true, now));
+            return;
+        }
+        if (state == null) {
+            state = new RemoteState(0, new HashMap<>(), false, now);
+            remote.put(playerId, state);
+        } else if (update.version() <= state.version) {
+            return;
+        }
+        // A gap means an update went missing; only the next snapshot makes the state whole again
+        state.complete &= update.version() == state.version + 1;
+        state.version = update.version();
+        state.updatedAt = now;
+        if (update.kind() == Kind.INFECT) {
+            state.diseases.putAll(update.diseases());
+        } else {
+            state.diseases.keySet().removeAll(update.diseases().keySet());
+        }
+    }
+
+    private void applyLocally(Update update) {
+        UUID playerId = update.playerId();
+        if (update.kind() == Kind.INFECT) {
+            update.diseases().forEach((disease, infectedAt) -> sink.infected(playerId, disease, infectedAt));
+        } else {
+            update.diseases().keySet().forEach(disease -> sink.cured(playerId, disease));
+        }
+    }
+
+    private void flush() {
+        if (!outbound.isEmpty()) {
+            encode(outbound);
+            outbound.clear();
+        }
+        while (!unsent.isEmpty() && transport.send(unsent.peekFirst())) {
+            unsent.pollFirst();
+        }
+        // Snapshots resend everything that matters, so the oldest batches are the ones to give up
+        while (unsent.size() > MAX_UNSENT) {
+            unsent.pollFirst();
+            if (dropped++ % 100 == 0) {
+                logger.warning("Server sync transport is not sending, " + dropped + " messages dropped so far");
+            }
+        }
+    }
+
+    // Updates are packed into messages up to the transport's limit
+    private void encode(List<Update> updates) {
+        int max = transport.maxMessageSize();
+        ByteBuffer buffer = ByteBuffer.allocate(max);
+        buffer.position(HEADER_SIZE);
+        int count = 0;
+        for (Update update : updates) {
+            byte[][] names = new byte[update.diseases().size()][];
+            long[] times = new long[names.length];
+            int size = UPDATE_SIZE;
+            int i = 0;
+            for (Map.Entry<String, Long> entry : update.diseases().entrySet()) {
+                names[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                times[i] = entry.getValue();
+                size += 2 + names[i].length + 8;
+                i++;
+            }
+            if (HEADER_SIZE + size > max) {
+                logger.warning("Sync update for " + update.playerId() + " does not fit in a message, dropped");
+                continue;
+            }
+            if (buffer.remaining() < size || count == 0xFFFF) {
+                unsent.addLast(finish(buffer, count));
+                buffer.clear().position(HEADER_SIZE);
+                count = 0;
+            }
+            buffer.put((byte) update.kind().ordinal())
+                    .putLong(update.playerId().getMostSignificantBits())
+                    .putLong(update.playerId().getLeastSignificantBits())
+                    .putLong(update.version())
+                    .putShort((short) names.length);
+            for (int j = 0; j < names.length; j++) {
+                buffer.putShort((short) names[j].length).put(names[j]).putLong(times[j]);
+            }
+            count++;
+        }
+        if (count > 0) {
+            unsent.addLast(finish(buffer, count));
+        }
+    }
+
+    private static byte[] finish(ByteBuffer buffer, int count) {
+        buffer.putInt(0, MAGIC).put(4, FORMAT).putShort(5, (short) count);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static List<Update> decode(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        if (buffer.getInt() != MAGIC || buffer.get() != FORMAT) {
+            throw new IllegalArgumentException("not a sync message of format " + FORMAT);
+        }
+        int count = Short.toUnsignedInt(buffer.getShort());
+        Kind[] kinds = Kind.values();
+        List<Update> updates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Kind kind = kinds[buffer.get()];
+            UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+            long version = buffer.getLong();
+            int diseaseCount = Short.toUnsignedInt(buffer.getShort());
+            Map<String, Long> diseases = new HashMap<>();
+            for (int j = 0; j < diseaseCount; j++) {
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                diseases.put(new String(name, StandardCharsets.UTF_8), buffer.getLong());
+            }
+            updates.add(new Update(kind, playerId, version, diseases));
+        }
+        return updates;
+    }
+
+    // How updates from other servers reach players on this one
+    interface StateSink {
+        void infected(UUID playerId, String disease, long infectedAt);
+
+        void cured(UUID playerId, String disease);
+
+        Map<String, Long> current(UUID playerId);
+    }
+
+    // The order is part of the wire format
+    enum Kind {
+        INFECT, CURE, SNAPSHOT, LEFT
+    }
+
+    // Deltas carry one disease; a cure's time is unused
+    record Update(Kind kind, UUID playerId, long version, Map<String, Long> diseases) {
+    }
+
+    private static final class LocalState {
+        long version;
+        // The newest change from another server applied here
+        long remoteVersion;
+        long sentAt;
+
+        LocalState(long version) {
+            this.version = version;
+            this.remoteVersion = version;
+        }
+    }
+
+    private static final class RemoteState {
+        long version;
+        final Map<String, Long> diseases;
+        boolean complete;
+        long updatedAt;
+
+        RemoteState(long version, Map<String, Long> diseases, boolean complete, long updatedAt) {
+            this.version = version;
+            this.diseases = diseases;
+            this.complete = complete;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
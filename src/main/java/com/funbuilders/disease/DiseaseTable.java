@@ -0,0 +1,353 @@
+package com.funbuilders.disease;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Per-player disease state: an open-addressed table from player UUID to a bitset of disease ids
+ * (see {@link DiseaseIds}), kept in flat primitive arrays so membership tests never allocate.
+ * Each entry holds as many longs as the ids need, which is one until more than 64 diseases exist,
+ * plus the infection times of its set bits in id order. Players without diseases are not stored.
+ * Thread-safe: membership tests are optimistic reads that only lock when they race a write.
+ * Callbacks run under the read lock and must not call back into the table.
+ */
+final class DiseaseTable {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private UUID[] players;
+    private long[] masks;
+    private long[][] times;
+    private int words;
+    private int mask;
+    private int size;
+    private final StampedLock lock = new StampedLock();
+
+    DiseaseTable() {
+        allocate(MIN_CAPACITY, 1);
+    }
+
+    boolean has(UUID player, int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean has;
+            try {
+                has = hasUnlocked(player, id);
+            } catch (RuntimeException e) {
+                // Arrays swapped by a concurrent rehash; validate fails below
+                has = false;
+            }
+            if (lock.validate(stamp)) return has;
+        }
+        stamp = lock.readLock();
+        try {
+            return hasUnlocked(player, id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    boolean contains(UUID player) {
+        long stamp = lock.readLock();
+        try {
+            return find(player) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Infection time of the disease, or Long.MIN_VALUE if the player does not have it
+    long infectedAt(UUID player, int id) {
+        long stamp = lock.readLock();
+        try {
+            int word = id >>> 6;
+            if (word >= words) return Long.MIN_VALUE;
+            int i = find(player);
+            if (i < 0 || (masks[i * words + word] & (1L << id)) == 0) return Long.MIN_VALUE;
+            return times[i][rank(i, id)];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Returns false if the player already had the disease
+    boolean add(UUID player, int id, long infectedAt) {
+        long stamp = lock.writeLock();
+        try {
+            return addUnlocked(player, id, infectedAt);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean hasUnlocked(UUID player, int id) {
+        int word = id >>> 6;
+        if (word >= words) return false;
+        int i = find(player);
+        return i >= 0 && (masks[i * words + word] & (1L << id)) != 0;
+    }
+
+    private boolean addUnlocked(UUID player, int id, long infectedAt) {
+        ensureIdsUnlocked(id + 1);
+        int i = find(player);
+        if (i < 0) {
+            if ((size + 1) * 2 > players.length) {
+                rehash(players.length * 2, words);
+            }
+            i = insert(player);
+        }
+        int index = i * words + (id >>> 6);
+        long bit = 1L << id;
+        if ((masks[index] & bit) != 0) return false;
+        int count = bitCount(i);
+        int rank = rank(i, id);
+        long[] entryTimes = times[i];
+        if (entryTimes == null || entryTimes.length == count) {
+            entryTimes = Arrays.copyOf(entryTimes == null ? new long[0] : entryTimes, Math.max(2, count * 2));
+            times[i] = entryTimes;
+        }
+        System.arraycopy(entryTimes, rank, entryTimes, rank + 1, count - rank);
+        entryTimes[rank] = infectedAt;
+        masks[index] |= bit;
+        return true;
+    }
+
+    // Returns false if the player did not have the disease
+    boolean remove(UUID player, int id) {
+        long stamp = lock.writeLock();
+        try {
+            return removeUnlocked(player, id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean removeUnlocked(UUID player, int id) {
+        int word = id >>> 6;
+        if (word >= words) return false;
+        int i = find(player);
+        if (i < 0) return false;
+        int index = i * words + word;
+        long bit = 1L << id;
+        if ((masks[index] & bit) == 0) return false;
+        int count = bitCount(i);
+        int rank = rank(i, id);
+        System.arraycopy(times[i], rank + 1, times[i], rank, count - rank - 1);
+        masks[index] &= ~bit;
+        if (isEmpty(i)) {
+            delete(i);
+        }
+        return true;
+    }
+
+    void removePlayer(UUID player) {
+        long stamp = lock.writeLock();
+        try {
+            int i = find(player);
+            if (i >= 0) {
+                delete(i);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Whether any stored player has at least one of the given diseases
+    boolean hasAny(int[] ids) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < players.length; i++) {
+                if (players[i] == null) continue;
+                for (int id : ids) {
+                    int word = id >>> 6;
+                    if (word < words && (masks[i * words + word] & (1L << id)) != 0) return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int count(int id) {
+        long stamp = lock.readLock();
+        try {
+            int word = id >>> 6;
+            if (word >= words) return 0;
+            int count = 0;
+            for (int i = 0; i < players.length; i++) {
+                if (players[i] != null && (masks[i * words + word] & (1L << id)) != 0) count++;
+            }
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void forEachInfection(UUID player, InfectionConsumer action) {
+        long stamp = lock.readLock();
+        try {
+            int i = find(player);
+            if (i < 0) return;
+            int rank = 0;
+            for (int word = 0; word < words; word++) {
+                long bits = masks[i * words + word];
+                while (bits != 0) {
+                    action.accept((word << 6) + Long.numberOfTrailingZeros(bits), times[i][rank++]);
+                    bits &= bits - 1;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void forEachPlayer(Consumer<UUID> action) {
+        long stamp = lock.readLock();
+        try {
+            for (UUID player : players) {
+                if (player != null) action.accept(player);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void ensureIds(int idCount) {
+        long stamp = lock.writeLock();
+        try {
+            ensureIdsUnlocked(idCount);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void ensureIdsUnlocked(int idCount) {
+        int needed = (idCount + 63) >>> 6;
+        if (needed > words) {
+            rehash(players.length, needed);
+        }
+    }
+
+    // Probes are bounded so an optimistic read over a half-swapped table cannot spin forever
+    private int find(UUID player) {
+        long most = player.getMostSignificantBits();
+        long least = player.getLeastSignificantBits();
+        UUID[] players = this.players;
+        for (int i = slot(most, least), probes = 0; players[i] != null && probes < players.length; i = (i + 1) & mask, probes++) {
+            if (mostBits[i] == most && leastBits[i] == least) return i;
+        }
+        return -1;
+    }
+
+    private int insert(UUID player) {
+        long most = player.getMostSignificantBits();
+        long least = player.getLeastSignificantBits();
+        int i = slot(most, least);
+        while (players[i] != null) {
+            i = (i + 1) & mask;
+        }
+        mostBits[i] = most;
+        leastBits[i] = least;
+        players[i] = player;
+        size++;
+        return i;
+    }
+
+    private void delete(int i) {
+        clear(i);
+        size--;
+        // Shift back following entries so probe chains stay unbroken
+        for (int j = (i + 1) & mask; players[j] != null; j = (j + 1) & mask) {
+            int home = slot(mostBits[j], leastBits[j]);
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                mostBits[i] = mostBits[j];
+                leastBits[i] = leastBits[j];
+                players[i] = players[j];
+                times[i] = times[j];
+                System.arraycopy(masks, j * words, masks, i * words, words);
+                clear(j);
+                i = j;
+            }
+        }
+    }
+
+    private void clear(int i) {
+        players[i] = null;
+        times[i] = null;
+        Arrays.fill(masks, i * words, (i + 1) * words, 0L);
+    }
+
+    private int bitCount(int i) {
+        int count = 0;
+        for (int word = i * words, end = word + words; word < end; word++) {
+            count += Long.bitCount(masks[word]);
+        }
+        return count;
+    }
+
+    // Number of the entry's diseases with a lower id, which is the index of the id's infection time
+    private int rank(int i, int id) {
+        int base = i * words;
+        int word = id >>> 6;
+        int rank = 0;
+        for (int w = 0; w < word; w++) {
+            rank += Long.bitCount(masks[base + w]);
+        }
+        return rank + Long.bitCount(masks[base + word] & ((1L << id) - 1));
+    }
+
+    private boolean isEmpty(int i) {
+        for (int word = i * words, end = word + words; word < end; word++) {
+            if (masks[word] != 0) return false;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity, int newWords) {
+        long[] oldMasks = masks;
+        long[][] oldTimes = times;
+        UUID[] oldPlayers = players;
+        int oldWords = words;
+        allocate(capacity, newWords);
+        for (int j = 0; j < oldPlayers.length; j++) {
+            if (oldPlayers[j] == null) continue;
+            int i = insert(oldPlayers[j]);
+            System.arraycopy(oldMasks, j * oldWords, masks, i * newWords, oldWords);
+            times[i] = oldTimes[j];
+        }
+    }
+
+    private void allocate(int capacity, int newWords) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        players = new UUID[capacity];
+        masks = new long[capacity * newWords];
+        times = new long[capacity][];
+        words = newWords;
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private int slot(long most, long least) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    interface InfectionConsumer {
+        void accept(int id, long infectedAt);
+    }
+}
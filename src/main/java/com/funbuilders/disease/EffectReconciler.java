@@ -0,0 +1,141 @@
+package com.funbuilders.disease;
+
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Keeps players' potion effects in line with their diseases. Changes only mark a player dirty;
+ * once per tick the desired effects of every dirty player are collected from all active diseases,
+ * the strongest per type wins, and only the difference to what was last applied is sent. Effects
+ * the player got elsewhere, such as potions or beacons, are left alone.
+ * Players may be marked from any thread; each player is reconciled on the thread that owns them.
+ */
+final class EffectReconciler {
+    // Flush lag and rounding make our own effects look up to this much longer than computed
+    private static final int SLACK_TICKS = 20;
+
+    private final Map<UUID, Map<PotionEffectType, Grant>> applied = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    void markDirty(UUID player) {
+        dirty.add(player);
+    }
+
+    // For players leaving the server
+    void forget(UUID player) {
+        applied.remove(player);
+        dirty.remove(player);
+    }
+
+    // For when the server cleared the player's effects itself, e.g. on death or after drinking milk
+    void clearApplied(UUID player) {
+        applied.remove(player);
+    }
+
+    int pending() {
+        return dirty.size();
+    }
+
+    int tracked() {
+        return applied.size();
+    }
+
+    // The executor runs each reconciliation on the thread that owns the player
+    void flush(Function<UUID, Player> players, DesiredEffects desired, long now, BiConsumer<Player, Runnable> executor) {
+        if (dirty.isEmpty()) return;
+        Iterator<UUID> iterator = dirty.iterator();
+        while (iterator.hasNext()) {
+            UUID playerId = iterator.next();
+            iterator.remove();
+            Player player = players.apply(playerId);
+            if (player != null) {
+                executor.accept(player, () -> reconcile(player, desired, now));
+            }
+        }
+    }
+
+    private void reconcile(Player player, DesiredEffects desired, long now) {
+        UUID playerId = player.getUniqueId();
+        Map<PotionEffectType, Grant> wanted = new HashMap<>();
+        desired.collect(playerId, now, (type, amplifier, expiresAt) -> {
+            if (expiresAt <= now) return;
+            Grant grant = new Grant(amplifier, expiresAt);
+            wanted.merge(type, grant, (a, b) -> b.isStrongerThan(a) ? b : a);
+        });
+        Map<PotionEffectType, Grant> previous = applied.getOrDefault(playerId, Map.of());
+
+        for (Map.Entry<PotionEffectType, Grant> entry : previous.entrySet()) {
+            if (wanted.containsKey(entry.getKey())) continue;
+            if (isOurs(player.getPotionEffect(entry.getKey()), entry.getValue(), now)) {
+                player.removePotionEffect(entry.getKey());
+            }
+        }
+        for (Map.Entry<PotionEffectType, Grant> entry : wanted.entrySet()) {
+            PotionEffectType type = entry.getKey();
+            Grant grant = entry.getValue();
+            Grant last = previous.get(type);
+            if (grant.equals(last)) continue;
+            PotionEffect current = player.getPotionEffect(type);
+            int ticks = grant.ticksLeft(now);
+            if (covers(current, grant.amplifier(), ticks)) continue;
+            // The server never lowers an effect in place, so a weaker replacement of our own needs the old one gone
+            if (last != null && isOurs(current, last, now) && !overrides(grant.amplifier(), ticks, current)) {
+                player.removePotionEffect(type);
+            }
+            player.addPotionEffect(new PotionEffect(type, ticks, grant.amplifier()));
+        }
+
+        if (wanted.isEmpty()) {
+            applied.remove(playerId);
+        } else {
+            applied.put(playerId, wanted);
+        }
+    }
+
+    private static boolean isOurs(PotionEffect current, Grant grant, long now) {
+        if (current == null || current.isAmbient() || current.getAmplifier() != grant.amplifier()) return false;
+        if (grant.expiresAt() == Long.MAX_VALUE) return current.isInfinite();
+        return !current.isInfinite() && current.getDuration() <= grant.ticksLeft(now) + SLACK_TICKS;
+    }
+
+    private static boolean covers(PotionEffect current, int amplifier, int ticks) {
+        if (current == null || current.getAmplifier() != amplifier) return false;
+        if (current.isInfinite()) return true;
+        return ticks != PotionEffect.INFINITE_DURATION && current.getDuration() >= ticks - SLACK_TICKS;
+    }
+
+    private static boolean overrides(int amplifier, int ticks, PotionEffect current) {
+        if (amplifier != current.getAmplifier()) return amplifier > current.getAmplifier();
+        return ticks == PotionEffect.INFINITE_DURATION || !current.isInfinite() && ticks > current.getDuration();
+    }
+
+    interface DesiredEffects {
+        void collect(UUID player, long now, EffectSink sink);
+    }
+
+    interface EffectSink {
+        // expiresAt is a wall clock time in milliseconds, Long.MAX_VALUE for an effect without end
+        void offer(PotionEffectType type, int amplifier, long expiresAt);
+    }
+
+    private record Grant(int amplifier, long expiresAt) {
+        boolean isStrongerThan(Grant other) {
+            return amplifier != other.amplifier ? amplifier > other.amplifier : expiresAt > other.expiresAt;
+        }
+
+        int ticksLeft(long now) {
+            if (expiresAt == Long.MAX_VALUE) return PotionEffect.INFINITE_DURATION;
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (expiresAt - now) / 50));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.funbuilders.disease;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary journal of infections, cures, triggers and coughs, written to memory-mapped
+ * segment files of a fixed size. Each segment starts with a header and the names of the disease
+ * ids it uses, so it can be read on its own; see {@link JournalTool}.
+ * Appending reserves a slot with a single atomic add and never waits; only opening the next
+ * segment when one is full takes a lock. Safe to use from any thread.
+ */
+final class EventJournal implements AutoCloseable {
+    static final int MAGIC = 0x444A4E4C;
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 48;
+    static final int NAME_BYTES = RECORD_SIZE - 8;
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".djl";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final DiseaseIds diseaseIds;
+    private final Logger logger;
+    private volatile Segment current;
+    private int sequence;
+
+    private EventJournal(Path directory, long segmentBytes, int maxSegments, DiseaseIds diseaseIds, Logger logger) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.diseaseIds = diseaseIds;
+        this.logger = logger;
+    }
+
+    // Every start opens a new segment, so retention is applied here as well as on rotation.
+    // The unwritten tail of the previous segment stays zeroed and readers skip it
+    static EventJournal open(Path directory, long segmentBytes, int maxSegments, DiseaseIds diseaseIds, Logger logger)
+            throws IOException {
+        Files.createDirectories(directory);
+        EventJournal journal = new EventJournal(directory, Math.max(RECORD_SIZE * 64L, segmentBytes - segmentBytes % RECORD_SIZE),
+                Math.max(1, maxSegments), diseaseIds, logger);
+        List<Path> segments = listSegments(directory);
+        journal.sequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1));
+        journal.current = journal.openNext();
+        journal.deleteOldSegments();
+        return journal;
+    }
+
+    void append(Type type, Cause cause, int diseaseId, UUID playerId, int x, int y, int z, int detail) {
+        Segment segment = current;
+        if (segment == null) return;
+        if (diseaseId >= segment.defined) {
+            segment = define(segment, diseaseId);
+            if (segment == null) return;
+        }
+        long offset;
+        while ((offset = segment.next.getAndAdd(RECORD_SIZE)) + RECORD_SIZE > segment.capacity) {
+            segment = rotate(segment);
+            if (segment == null) return;
+        }
+        ByteBuffer buffer = segment.buffer;
+        int at = (int) offset;
+        buffer.put(at + 1, (byte) cause.ordinal());
+        buffer.putInt(at + 4, diseaseId);
+        buffer.putLong(at + 8, System.currentTimeMillis());
+        buffer.putLong(at + 16, playerId.getMostSignificantBits());
+        buffer.putLong(at + 24, playerId.getLeastSignificantBits());
+        buffer.putInt(at + 32, x);
+        buffer.putInt(at + 36, y);
+        buffer.putInt(at + 40, z);
+        buffer.putInt(at + 44, detail);
+        // The type goes last: a zero type marks the end of the written records
+        buffer.put(at, type.code);
+    }
+
+    @Override
+    public synchronized void close() {
+        Segment segment = current;
+        current = null;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    // Diseases added by a reload get their names written before their first record
+    private synchronized Segment define(Segment segment, int diseaseId) {
+        if (segment != current) return current;
+        while (segment.defined <= diseaseId && segment.defined < diseaseIds.size()) {
+            if (!writeDefinition(segment, segment.defined)) {
+                segment = rotate(segment);
+                if (segment == null) return null;
+                continue;
+            }
+            segment.defined++;
+        }
+        return segment;
+    }
+
+    private synchronized Segment rotate(Segment full) {
+        if (full != current) return current;
+        full.buffer.force();
+        try {
+            current = openNext();
+            deleteOldSegments();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to open a new journal segment, journal disabled", e);
+            current = null;
+        }
+        return current;
+    }
+
+    private Segment openNext() throws IOException {
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, ++sequence, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putLong(16, System.currentTimeMillis());
+        Segment segment = new Segment(buffer, segmentBytes);
+        int ids = diseaseIds.size();
+        while (segment.defined < ids && writeDefinition(segment, segment.defined)) {
+            segment.defined++;
+        }
+        return segment;
+    }
+
+    // Returns false if the segment is full
+    private boolean writeDefinition(Segment segment, int diseaseId) {
+        long offset = segment.next.getAndAdd(RECORD_SIZE);
+        if (offset + RECORD_SIZE > segment.capacity) return false;
+        int at = (int) offset;
+        byte[] name = diseaseIds.name(diseaseId).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(name.length, NAME_BYTES);
+        // Long names are cut at a character boundary
+        while (length < name.length && (name[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        segment.buffer.putInt(at + 4, diseaseId);
+        segment.buffer.put(at + 8, name, 0, length);
+        segment.buffer.put(at, Type.DEFINE.code);
+        return true;
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(EventJournal::isSegment).sorted().forEach(segments::add);
+            return segments;
+        }
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static int sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    enum Type {
+        INFECTION(1), CURE(2), TRIGGER(3), COUGH(4), DEFINE(5);
+
+        final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        static Type byCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            return null;
+        }
+    }
+
+    // Stored by ordinal, so new causes go at the end
+    enum Cause {
+        NONE, MANUAL, TRIGGER, CONTAGION, TREATMENT, RECOVERY, FOOD, ENTITY, WATER, COLD_BIOME, SCHEDULE
+    }
+
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        final long capacity;
+        // The header takes the first record slot
+        final AtomicLong next = new AtomicLong(RECORD_SIZE);
+        volatile int defined;
+
+        Segment(MappedByteBuffer buffer, long capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.funbuilders.disease;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * {@link TaskScheduler} on Folia's region schedulers. The plugin builds against the Spigot API,
+ * so the Folia scheduler API is reached through reflection, resolved once here.
+ */
+final class FoliaTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+    private final Method globalRunAtFixedRate;
+    private final Method globalExecute;
+    private final Method globalCancelTasks;
+    private final Method asyncRunNow;
+    private final Method asyncCancelTasks;
+    private final Method getEntityScheduler;
+    private final Method entityExecute;
+    private final Method taskCancel;
+    private final Method isGlobalTickThread;
+    private final Method isOwnedByCurrentRegion;
+
+    FoliaTaskScheduler(Plugin plugin) {
+        this(plugin, Server.class, Entity.class);
+    }
+
+    // Folia's additions to the server and to entities are looked up on the given types, so stand-ins that
+    // declare them can run the same lookups outside Folia
+    FoliaTaskScheduler(Plugin plugin, Class<? extends Server> serverType, Class<? extends Entity> entityType) {
+        this.plugin = plugin;
+        try {
+            Class<?> globalType = Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler");
+            Class<?> asyncType = Class.forName("io.papermc.paper.threadedregions.scheduler.AsyncScheduler");
+            Class<?> entitySchedulerType = Class.forName("io.papermc.paper.threadedregions.scheduler.EntityScheduler");
+            Class<?> taskType = Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask");
+            Server server = plugin.getServer();
+            globalScheduler = serverType.getMethod("getGlobalRegionScheduler").invoke(server);
+            asyncScheduler = serverType.getMethod("getAsyncScheduler").invoke(server);
+            globalRunAtFixedRate = globalType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+            globalExecute = globalType.getMethod("execute", Plugin.class, Runnable.class);
+            globalCancelTasks = globalType.getMethod("cancelTasks", Plugin.class);
+            asyncRunNow = asyncType.getMethod("runNow", Plugin.class, Consumer.class);
+            asyncCancelTasks = asyncType.getMethod("cancelTasks", Plugin.class);
+            getEntityScheduler = entityType.getMethod("getScheduler");
+            entityExecute = entitySchedulerType.getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+            taskCancel = taskType.getMethod("cancel");
+            isGlobalTickThread = serverType.getMethod("isGlobalTickThread");
+            isOwnedByCurrentRegion = serverType.getMethod("isOwnedByCurrentRegion", Entity.class);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unsupported Folia scheduler API", e);
+        }
+    }
+
+    @Override
+    public Task runTimer(Runnable task, long delay, long period) {
+        Consumer<Object> body = scheduled -> task.run();
+        Object scheduled = invoke(globalRunAtFixedRate, globalScheduler, plugin, body, Math.max(1, delay), Math.max(1, period));
+        return () -> invoke(taskCancel, scheduled);
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if ((Boolean) invoke(isGlobalTickThread, plugin.getServer())) {
+            task.run();
+        } else {
+            invoke(globalExecute, globalScheduler, plugin, task);
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Consumer<Object> body = scheduled -> task.run();
+        invoke(asyncRunNow, asyncScheduler, plugin, body);
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task, Runnable retired) {
+        if ((Boolean) invoke(isOwnedByCurrentRegion, plugin.getServer(), player)) {
+            task.run();
+        } else if (!(Boolean) invoke(entityExecute, invoke(getEntityScheduler, player), plugin, task, retired, 1L)
+                && retired != null) {
+            // Not scheduled at all because the player is already gone
+            retired.run();
+        }
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void cancelAll() {
+        invoke(globalCancelTasks, globalScheduler, plugin);
+        invoke(asyncCancelTasks, asyncScheduler, plugin);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.funbuilders.disease;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Infection and treatment intents raised by event handlers, applied in one batch per tick.
+ * Handlers only enqueue, so a player hit many times in a tick costs one lookup per hit, and an
+ * intent that is already waiting is not queued again. Any thread may offer; drain from the main thread.
+ */
+final class IntentQueue {
+    private final Queue<Intent> queue = new ConcurrentLinkedQueue<>();
+    private final Set<Intent> pending = ConcurrentHashMap.newKeySet();
+
+    // Returns false if the same intent is already waiting for the next drain
+    boolean offer(UUID playerId, int diseaseId, Kind kind) {
+        Intent intent = new Intent(playerId, diseaseId, kind);
+        if (!pending.add(intent)) return false;
+        queue.add(intent);
+        return true;
+    }
+
+    // Intents run in the order they were offered; returns how many ran
+    int drain(Consumer<Intent> action) {
+        int drained = 0;
+        Intent intent;
+        while ((intent = queue.poll()) != null) {
+            pending.remove(intent);
+            action.accept(intent);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    enum Kind {
+        INFECT,
+        // Raised by a carrier's region on a regionized server
+        CONTAGION,
+        // A treatment item was used up; the cure and its message follow on drain
+        TREAT
+    }
+
+    record Intent(UUID playerId, int diseaseId, Kind kind) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.funbuilders.disease;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Offline reader for {@link EventJournal} segments, run outside the server:
+ * <pre>java -cp Disease.jar com.funbuilders.disease.JournalTool &lt;replay|hourly|summary&gt; &lt;segment or directory&gt;...</pre>
+ * {@code replay} prints every record, {@code hourly} counts infections per hour and disease,
+ * {@code summary} counts records per disease, type and cause.
+ */
+public final class JournalTool {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00").withZone(ZoneId.systemDefault());
+
+    private JournalTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !Set.of("replay", "hourly", "summary").contains(args[0])) {
+            System.err.println("Usage: JournalTool <replay|hourly|summary> <segment or directory>...");
+            System.exit(2);
+            return;
+        }
+        List<Path> segments = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                segments.addAll(EventJournal.listSegments(path));
+            } else {
+                segments.add(path);
+            }
+        }
+        switch (args[0]) {
+            case "replay" -> read(segments, record -> System.out.println(record.format()));
+            case "hourly" -> hourly(segments);
+            default -> summary(segments);
+        }
+    }
+
+    private static void hourly(List<Path> segments) throws IOException {
+        Map<String, Map<String, Integer>> counts = new TreeMap<>();
+        read(segments, record -> {
+            if (record.type() == EventJournal.Type.INFECTION) {
+                String hour = HOUR.format(Instant.ofEpochMilli(record.time()));
+                counts.computeIfAbsent(hour, key -> new TreeMap<>()).merge(record.disease(), 1, Integer::sum);
+            }
+        });
+        counts.forEach((hour, diseases) -> diseases.forEach((disease, count) ->
+                System.out.println(hour + "\t" + disease + "\t" + count)));
+    }
+
+    private static void summary(List<Path> segments) throws IOException {
+        Map<String, Integer> counts = new TreeMap<>();
+        read(segments, record -> counts.merge(record.disease() + "\t" + record.type() + "\t" + record.cause(), 1, Integer::sum));
+        counts.forEach((key, count) -> System.out.println(key + "\t" + count));
+    }
+
+    private static void read(List<Path> segments, RecordConsumer consumer) throws IOException {
+        for (Path segment : segments) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+            if (buffer.remaining() < EventJournal.RECORD_SIZE || buffer.getInt(0) != EventJournal.MAGIC) {
+                System.err.println("Skipping " + segment + ": not a journal segment");
+                continue;
+            }
+            if (buffer.getInt(4) != EventJournal.VERSION || buffer.getInt(8) != EventJournal.RECORD_SIZE) {
+                System.err.println("Skipping " + segment + ": unsupported version " + buffer.getInt(4));
+                continue;
+            }
+            // Ids are only stable within a server run, and every run writes its own segments
+            Map<Integer, String> names = new HashMap<>();
+            // Slots are claimed before they are written, so a crash can leave zeroed slots among written
+            // ones; only the zeroed tail after the last written slot is never used
+            int end = highWaterMark(buffer);
+            int unwritten = 0;
+            for (int at = EventJournal.RECORD_SIZE; at < end; at += EventJournal.RECORD_SIZE) {
+                byte code = buffer.get(at);
+                if (code == 0) {
+                    unwritten++;
+                    continue;
+                }
+                EventJournal.Type type = EventJournal.Type.byCode(code);
+                int diseaseId = buffer.getInt(at + 4);
+                if (type == EventJournal.Type.DEFINE) {
+                    names.put(diseaseId, readName(buffer, at + 8));
+                    continue;
+                }
+                if (type == null) {
+                    System.err.println("Unknown record type " + code + " in " + segment + " at " + at);
+                    continue;
+                }
+                byte cause = buffer.get(at + 1);
+                EventJournal.Cause[] causes = EventJournal.Cause.values();
+                consumer.accept(new Record(type, cause >= 0 && cause < causes.length ? causes[cause] : EventJournal.Cause.NONE,
+                        names.getOrDefault(diseaseId, "#" + diseaseId), buffer.getLong(at + 8),
+                        new UUID(buffer.getLong(at + 16), buffer.getLong(at + 24)),
+                        buffer.getInt(at + 32), buffer.getInt(at + 36), buffer.getInt(at + 40), buffer.getInt(at + 44)));
+            }
+            if (unwritten > 0) {
+                System.err.println("Skipped " + unwritten + " unwritten records in " + segment);
+            }
+        }
+    }
+
+    // End of the last written slot
+    private static int highWaterMark(ByteBuffer buffer) {
+        int end = buffer.limit() - buffer.limit() % EventJournal.RECORD_SIZE;
+        while (end > EventJournal.RECORD_SIZE && buffer.get(end - EventJournal.RECORD_SIZE) == 0) {
+            end -= EventJournal.RECORD_SIZE;
+        }
+        return end;
+    }
+
+    private static String readName(ByteBuffer buffer, int at) {
+        int length = 0;
+        while (length < EventJournal.NAME_BYTES && buffer.get(at + length) != 0) {
+            length++;
+        }
+        byte[] name = new byte[length];
+        buffer.get(at, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private interface RecordConsumer {
+        void accept(Record record);
+    }
+
+    private record Record(EventJournal.Type type, EventJournal.Cause cause, String disease, long time, UUID player,
+                          int x, int y, int z, int detail) {
+        String format() {
+            return TIME.format(Instant.ofEpochMilli(time)) + "\t" + type + "\t" + cause + "\t" + disease + "\t" + player
+                    + "\t" + x + " " + y + " " + z + (detail != 0 ? "\t" + detail : "");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.funbuilders.disease;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link SyncTransport} between plugin instances in one JVM that share a network name, for tests
+ * and in-process harnesses. Messages are delivered synchronously on the sending thread.
+ */
+final class LoopbackTransport implements SyncTransport {
+    private static final Map<String, Set<LoopbackTransport>> NETWORKS = new ConcurrentHashMap<>();
+
+    private final String network;
+    private volatile Consumer<byte[]> receiver;
+
+    LoopbackTransport(String network) {
+        this.network = network;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        NETWORKS.computeIfAbsent(network, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public boolean send(byte[] message) {
+        for (LoopbackTransport peer : NETWORKS.getOrDefault(network, Set.of())) {
+            if (peer != this) {
+                peer.receiver.accept(message.clone());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return 1 << 20;
+    }
+
+    @Override
+    public void close() {
+        NETWORKS.computeIfPresent(network, (key, peers) -> {
+            peers.remove(this);
+            return peers.isEmpty() ? null : peers;
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package com.funbuilders.disease;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Low-overhead hot-path instrumentation: one fixed-bucket latency recorder per probe and
+ * infection/cure counters per disease. Recording never allocates.
+ * Latencies may be recorded from any thread; infections, cures and reports belong to the global thread.
+ */
+final class PluginMetrics {
+    enum Probe {
+        ITEM_CONSUME("onItemConsume"),
+        ENTITY_DAMAGE("onEntityDamage"),
+        PLAYER_INTERACT("onPlayerInteract"),
+        ENVIRONMENT("environment task"),
+        COUGH_SCHEDULER("cough scheduler"),
+        CONTAGION("contagion task"),
+        PROGRESSION("progression task"),
+        BULK("bulk operations"),
+        EFFECTS("effect reconciliation"),
+        INTENTS("event intake"),
+        SYNC("server sync");
+
+        final String label;
+
+        Probe(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Map<Probe, LatencyRecorder> recorders = new EnumMap<>(Probe.class);
+    private final Map<String, DiseaseCounters> diseases = new TreeMap<>();
+    private final long startedAt = System.nanoTime();
+
+    PluginMetrics() {
+        for (Probe probe : Probe.values()) {
+            recorders.put(probe, new LatencyRecorder());
+        }
+    }
+
+    void record(Probe probe, long nanos) {
+        recorders.get(probe).record(nanos);
+    }
+
+    void recordInfection(String disease) {
+        diseases.computeIfAbsent(disease, k -> new DiseaseCounters()).infections++;
+    }
+
+    void recordCure(String disease) {
+        diseases.computeIfAbsent(disease, k -> new DiseaseCounters()).cures++;
+    }
+
+    List<String> report(Map<String, Integer> infectedNow) {
+        List<String> lines = new ArrayList<>();
+        long uptimeSeconds = (System.nanoTime() - startedAt) / 1_000_000_000L;
+        lines.add("Время работы: " + uptimeSeconds + " с");
+        lines.add("Время обработки (вызовов, среднее / p50 / p99 / макс, мкс):");
+        recorders.forEach((probe, recorder) -> lines.add(String.format("  %s: %d, %.1f / %.1f / %.1f / %.1f",
+                probe.label, recorder.count(), micros(recorder.mean()), micros(recorder.percentile(0.50)),
+                micros(recorder.percentile(0.99)), micros(recorder.max()))));
+        lines.add("Болезни (заражений / излечений / болеют сейчас):");
+        Map<String, Integer> names = new TreeMap<>(infectedNow);
+        diseases.keySet().forEach(name -> names.putIfAbsent(name, 0));
+        names.forEach((name, infected) -> {
+            DiseaseCounters counters = diseases.get(name);
+            lines.add("  " + name + ": " + (counters == null ? 0 : counters.infections) + " / "
+                    + (counters == null ? 0 : counters.cures) + " / " + infected);
+        });
+        return lines;
+    }
+
+    private static double micros(double nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static final class DiseaseCounters {
+        long infections;
+        long cures;
+    }
+
+    /**
+     * Histogram with power-of-two nanosecond buckets: bucket i holds values in [2^i, 2^(i+1)).
+     * Percentiles are reported as the upper bound of their bucket, so they are within 2x.
+     */
+    static final class LatencyRecorder {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long total;
+        private long max;
+
+        synchronized void record(long nanos) {
+            long value = Math.max(1, nanos);
+            buckets[63 - Long.numberOfLeadingZeros(value)]++;
+            count++;
+            total += value;
+            if (value > max) max = value;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized double mean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        synchronized long max() {
+            return max;
+        }
+
+        synchronized long percentile(double quantile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(max, (1L << (i + 1)) - 1);
+                }
+            }
+            return max;
+        }
+    }
+}
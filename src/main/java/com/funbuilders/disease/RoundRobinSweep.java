@@ -0,0 +1,76 @@
+package com.funbuilders.disease;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Visits every member once per interval, spread evenly over the ticks of that interval.
+ * Each tick handles its share of the members plus any backlog left by an earlier tick
+ * that ran out of time budget. Not thread-safe: drive it from a single thread.
+ */
+final class RoundRobinSweep<K> {
+    private final List<K> members = new ArrayList<>();
+    private final Map<K, Integer> positions = new HashMap<>();
+    private int cursor;
+    private double credit;
+
+    boolean add(K key) {
+        if (positions.containsKey(key)) return false;
+        positions.put(key, members.size());
+        members.add(key);
+        return true;
+    }
+
+    boolean remove(K key) {
+        Integer index = positions.remove(key);
+        if (index == null) return false;
+        int last = members.size() - 1;
+        K moved = members.remove(last);
+        if (index != last) {
+            members.set(index, moved);
+            positions.put(moved, index);
+        }
+        return true;
+    }
+
+    boolean contains(K key) {
+        return positions.containsKey(key);
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    void clear() {
+        members.clear();
+        positions.clear();
+        cursor = 0;
+        credit = 0;
+    }
+
+    void tick(long intervalTicks, long budgetNanos, Consumer<K> visitor) {
+        int size = members.size();
+        if (size == 0) {
+            credit = 0;
+            return;
+        }
+        credit = Math.min(size, credit + (double) size / intervalTicks);
+        int quota = (int) credit;
+        long deadline = System.nanoTime() + budgetNanos;
+        int visited = 0;
+        while (visited < quota && !members.isEmpty()) {
+            if (cursor >= members.size()) cursor = 0;
+            K member = members.get(cursor);
+            visitor.accept(member);
+            // A member that removed itself was replaced by the last one, which is visited next instead of skipped
+            if (cursor < members.size() && members.get(cursor) == member) cursor++;
+            visited++;
+            if (System.nanoTime() - deadline > 0) break;
+        }
+        // Unvisited quota carries over to the next tick
+        credit -= visited;
+    }
+}
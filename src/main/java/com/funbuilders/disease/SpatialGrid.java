@@ -0,0 +1,163 @@
+package com.funbuilders.disease;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid of player positions, rebuilt from scratch on every use. Players are bucketed
+ * into square cells per world so a radius query only looks at the 3x3 cells around a point.
+ * All storage is kept between rebuilds; steady-state rebuilds and queries do not allocate.
+ * Not thread-safe: use from the main thread.
+ */
+final class SpatialGrid {
+    private static final int EMPTY = -1;
+
+    private final Map<UUID, Integer> worldIds = new HashMap<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    private Player[] players = new Player[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] zs = new double[64];
+    private int[] worlds = new int[64];
+    private int[] next = new int[64];
+    private int size;
+
+    private long[] cellKeys = new long[128];
+    private int[] cellHeads = new int[128];
+    private int[] cellStamps = new int[128];
+    private int cellMask = 127;
+    private int stamp;
+    private double cellSize = 1.0;
+
+    void rebuild(Iterable<? extends Player> online, double cellSize) {
+        Arrays.fill(players, 0, size, null);
+        size = 0;
+        worldIds.clear();
+        this.cellSize = Math.max(1.0, cellSize);
+        for (Player player : online) {
+            add(player);
+        }
+        index();
+    }
+
+    int size() {
+        return size;
+    }
+
+    Player player(int index) {
+        return players[index];
+    }
+
+    // Visits every other player within radius of the player at index; radius must not exceed the cell size
+    void forEachWithin(int index, double radius, Consumer<Player> visitor) {
+        visit(worlds[index], xs[index], ys[index], zs[index], index, radius, visitor);
+    }
+
+    // Visits every player within radius of a point, at their position as of the last rebuild; same radius limit
+    void forEachNear(Location point, double radius, Consumer<Player> visitor) {
+        Integer world = point.getWorld() == null ? null : worldIds.get(point.getWorld().getUID());
+        if (world != null) {
+            visit(world, point.getX(), point.getY(), point.getZ(), EMPTY, radius, visitor);
+        }
+    }
+
+    private void visit(int world, double x, double y, double z, int skip, double radius, Consumer<Player> visitor) {
+        double radiusSquared = radius * radius;
+        int cellX = cell(x);
+        int cellZ = cell(z);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int other = head(cellKey(world, cellX + dx, cellZ + dz)); other != EMPTY; other = next[other]) {
+                    if (other == skip) continue;
+                    double ox = xs[other] - x;
+                    double oy = ys[other] - y;
+                    double oz = zs[other] - z;
+                    if (ox * ox + oy * oy + oz * oz <= radiusSquared) {
+                        visitor.accept(players[other]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(Player player) {
+        if (size == players.length) grow();
+        player.getLocation(scratch);
+        if (scratch.getWorld() == null) return;
+        Integer world = worldIds.get(scratch.getWorld().getUID());
+        if (world == null) {
+            world = worldIds.size();
+            worldIds.put(scratch.getWorld().getUID(), world);
+        }
+        players[size] = player;
+        xs[size] = scratch.getX();
+        ys[size] = scratch.getY();
+        zs[size] = scratch.getZ();
+        worlds[size] = world;
+        size++;
+    }
+
+    private void index() {
+        if (size * 2 > cellKeys.length) {
+            int capacity = Integer.highestOneBit(size * 4 - 1) << 1;
+            cellKeys = new long[capacity];
+            cellHeads = new int[capacity];
+            cellStamps = new int[capacity];
+            cellMask = capacity - 1;
+            stamp = 0;
+        }
+        // Bumping the stamp empties every cell without clearing the arrays
+        stamp++;
+        for (int i = 0; i < size; i++) {
+            long key = cellKey(worlds[i], cell(xs[i]), cell(zs[i]));
+            int slot = slot(key);
+            while (cellStamps[slot] == stamp && cellKeys[slot] != key) {
+                slot = (slot + 1) & cellMask;
+            }
+            if (cellStamps[slot] != stamp) {
+                cellStamps[slot] = stamp;
+                cellKeys[slot] = key;
+                cellHeads[slot] = EMPTY;
+            }
+            next[i] = cellHeads[slot];
+            cellHeads[slot] = i;
+        }
+    }
+
+    private int head(long key) {
+        for (int slot = slot(key); cellStamps[slot] == stamp; slot = (slot + 1) & cellMask) {
+            if (cellKeys[slot] == key) return cellHeads[slot];
+        }
+        return EMPTY;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & cellMask;
+    }
+
+    private static long cellKey(int world, int cellX, int cellZ) {
+        return ((long) (cellX & 0xFFFFFFF) << 36) | ((long) (cellZ & 0xFFFFFFF) << 8) | (world & 0xFF);
+    }
+
+    private void grow() {
+        int capacity = players.length * 2;
+        players = Arrays.copyOf(players, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        worlds = Arrays.copyOf(worlds, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+}
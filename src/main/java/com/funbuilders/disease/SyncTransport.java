@@ -0,0 +1,19 @@
+package com.funbuilders.disease;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link DiseaseSync} batches to every other server behind the proxy. Messages are opaque
+ * to the transport; they may arrive late or not at all, which the versioned updates tolerate.
+ */
+interface SyncTransport {
+    // The receiver may be called from any thread
+    void start(Consumer<byte[]> receiver);
+
+    // Returns false if the message cannot go out right now; the caller keeps it and retries
+    boolean send(byte[] message);
+
+    int maxMessageSize();
+
+    void close();
+}
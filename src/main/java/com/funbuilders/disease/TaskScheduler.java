@@ -0,0 +1,45 @@
+package com.funbuilders.disease;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Where the plugin's work runs. The classic backend runs everything on the main thread; the
+ * regionized backend (Folia) runs shared bookkeeping on the global region thread and work on a
+ * player on the thread that owns the player's region, so disease processing spreads across cores.
+ */
+interface TaskScheduler {
+    // Repeating task on the global thread, delay and period in ticks
+    Task runTimer(Runnable task, long delay, long period);
+
+    // Inline when already on the global thread, otherwise on its next tick
+    void runGlobal(Runnable task);
+
+    void runAsync(Runnable task);
+
+    // Inline when the current thread owns the player, otherwise on the owning thread's next tick.
+    // Dropped if the player leaves first
+    default void runForPlayer(Player player, Runnable task) {
+        runForPlayer(player, task, null);
+    }
+
+    // As above, but if the player leaves first, retired runs instead on the thread that saw them go
+    void runForPlayer(Player player, Runnable task, Runnable retired);
+
+    boolean isRegionized();
+
+    void cancelAll();
+
+    interface Task {
+        void cancel();
+    }
+
+    static TaskScheduler create(Plugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+        } catch (ClassNotFoundException e) {
+            return new BukkitTaskScheduler(plugin);
+        }
+        return new FoliaTaskScheduler(plugin);
+    }
+}
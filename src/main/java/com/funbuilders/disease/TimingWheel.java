@@ -0,0 +1,112 @@
+package com.funbuilders.disease;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel keyed by tick. Scheduling and cancelling are O(1); advancing one tick
+ * only visits the slot for that tick, so when the wheel covers the longest delay every visited
+ * entry is due. Longer delays stay in their slot until their deadline comes round.
+ * Not thread-safe: drive it from a single thread.
+ */
+final class TimingWheel<K> {
+    private final Node<K>[] slots;
+    private final int mask;
+    private final Map<K, Node<K>> scheduled = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(int minSlots) {
+        int size = Integer.highestOneBit(Math.max(2, minSlots) - 1) << 1;
+        this.slots = (Node<K>[]) new Node[size];
+        this.mask = size - 1;
+    }
+
+    void schedule(K key, int delayTicks) {
+        Node<K> node = scheduled.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            scheduled.put(key, node);
+        } else if (node.linked) {
+            unlink(node);
+        }
+        node.deadline = currentTick + Math.max(1, delayTicks);
+        link(node);
+    }
+
+    void cancel(K key) {
+        Node<K> node = scheduled.remove(key);
+        if (node != null && node.linked) {
+            unlink(node);
+        }
+    }
+
+    boolean contains(K key) {
+        return scheduled.containsKey(key);
+    }
+
+    int size() {
+        return scheduled.size();
+    }
+
+    void clear() {
+        scheduled.values().forEach(node -> {
+            node.prev = node.next = null;
+            node.linked = false;
+        });
+        scheduled.clear();
+        Arrays.fill(slots, null);
+    }
+
+    // The handler may reschedule or cancel the key it is given
+    void advance(Consumer<K> handler) {
+        long tick = ++currentTick;
+        Node<K> node = slots[(int) (tick & mask)];
+        while (node != null) {
+            Node<K> next = node.next;
+            if (node.deadline <= tick) {
+                unlink(node);
+                handler.accept(node.key);
+                if (!node.linked) {
+                    scheduled.remove(node.key, node);
+                }
+            }
+            node = next;
+        }
+    }
+
+    private void link(Node<K> node) {
+        int index = (int) (node.deadline & mask);
+        Node<K> head = slots[index];
+        node.prev = null;
+        node.next = head;
+        if (head != null) head.prev = node;
+        slots[index] = node;
+        node.linked = true;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[(int) (node.deadline & mask)] = node.next;
+        }
+        if (node.next != null) node.next.prev = node.prev;
+        node.prev = node.next = null;
+        node.linked = false;
+    }
+
+    private static final class Node<K> {
+        final K key;
+        long deadline;
+        boolean linked;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.funbuilders.disease;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiseaseSyncTest {
+    private static final long TTL = 60_000L;
+    private static final Logger LOGGER = Logger.getLogger("DiseaseSyncTest");
+
+    private final String network = "test-" + UUID.randomUUID();
+    private final List<DiseaseSync> servers = new ArrayList<>();
+    private final UUID player = UUID.randomUUID();
+
+    @AfterEach
+    void closeServers() {
+        servers.forEach(DiseaseSync::close);
+    }
+
+    @Test
+    void updatesSurviveEncodingAcrossMessages() {
+        // Small enough that the three updates need two messages
+        CapturingTransport transport = new CapturingTransport(120);
+        DiseaseSync sync = new DiseaseSync(transport, new Players(), TTL, LOGGER);
+        sync.start();
+        sync.established(player, Map.of("cough_cold", 1_000L, "отравление", 2_000L));
+        sync.infected(player, "bacterial_contamination", 3_000L);
+        sync.cured(player, "cough_cold");
+        sync.tick(0L);
+
+        assertEquals(2, transport.sent.size());
+        List<DiseaseSync.Update> updates = new ArrayList<>();
+        transport.sent.forEach(message -> updates.addAll(DiseaseSync.decode(message)));
+        assertEquals(List.of(
+                new DiseaseSync.Update(DiseaseSync.Kind.SNAPSHOT, player, 0L, Map.of("cough_cold", 1_000L, "отравление", 2_000L)),
+                new DiseaseSync.Update(DiseaseSync.Kind.INFECT, player, 1L, Map.of("bacterial_contamination", 3_000L)),
+                new DiseaseSync.Update(DiseaseSync.Kind.CURE, player, 2L, Map.of("cough_cold", 0L))), updates);
+    }
+
+    @Test
+    void malformedMessagesAreDropped() {
+        CapturingTransport transport = new CapturingTransport(1 << 10);
+        DiseaseSync sync = new DiseaseSync(transport, new Players(), TTL, LOGGER);
+        sync.start();
+        transport.receiver.accept(new byte[] {1, 2, 3});
+        sync.tick(0L);
+
+        assertEquals(0, sync.remotePlayers());
+    }
+
+    @Test
+    void staleAndMissingUpdatesAreNotHandedOff() {
+        CapturingTransport transport = new CapturingTransport(1 << 10);
+        DiseaseSync owner = new DiseaseSync(transport, new Players(), TTL, LOGGER);
+        owner.start();
+        owner.established(player, Map.of());
+        owner.tick(0L);
+        owner.infected(player, "poisoning", 1_000L);
+        owner.tick(0L);
+        owner.cured(player, "poisoning");
+        owner.tick(0L);
+        List<byte[]> messages = List.copyOf(transport.sent);
+
+        CapturingTransport receiving = new CapturingTransport(1 << 10);
+        DiseaseSync other = new DiseaseSync(receiving, new Players(), TTL, LOGGER);
+        other.start();
+        receiving.receiver.accept(messages.get(0));
+        receiving.receiver.accept(messages.get(2));
+        // Overtaken by the cure, so it must not bring the disease back
+        receiving.receiver.accept(messages.get(1));
+
+        // The infection never arrived in order, so the state is incomplete and storage has to answer
+        assertNull(other.handOff(player, 0L));
+        assertEquals(1, other.remotePlayers());
+    }
+
+    @Test
+    void changesOfThePreviousServerDuringASwitchAreKept() {
+        Players onA = new Players();
+        Players onB = new Players();
+        DiseaseSync a = server(onA);
+        DiseaseSync b = server(onB);
+        a.established(player, Map.of());
+        a.infected(player, "cough_cold", 1_000L);
+        a.tick(0L);
+
+        // The player arrives on B before A has handled the quit
+        Map<String, Long> handedOff = b.handOff(player, 10L);
+        assertEquals(Map.of("cough_cold", 1_000L), handedOff);
+        onB.put(player, handedOff);
+        b.established(player, handedOff);
+        b.infected(player, "poisoning", 2_000L);
+        onB.get(player).put("poisoning", 2_000L);
+
+        // Both servers are now at version 2, yet A's cure is a change B has not seen
+        a.cured(player, "cough_cold");
+        a.left(player, Map.of());
+        a.tick(20L);
+        b.tick(20L);
+
+        assertEquals(Map.of("poisoning", 2_000L), onB.get(player));
+    }
+
+    @Test
+    void laterChangesOnTheNewServerWinElsewhere() {
+        Players onB = new Players();
+        DiseaseSync a = server(new Players());
+        DiseaseSync b = server(onB);
+        DiseaseSync c = server(new Players());
+        a.established(player, Map.of());
+        a.infected(player, "cough_cold", 1_000L);
+        a.tick(0L);
+        b.established(player, b.handOff(player, 10L));
+        onB.put(player, Map.of("cough_cold", 1_000L));
+        a.cured(player, "cough_cold");
+        a.left(player, Map.of());
+        a.tick(20L);
+        b.tick(20L);
+        b.infected(player, "poisoning", 3_000L);
+        b.left(player, Map.of("poisoning", 3_000L));
+        b.tick(30L);
+
+        assertEquals(Map.of("poisoning", 3_000L), c.handOff(player, 40L));
+    }
+
+    @Test
+    void aStateLoadedFromStorageSettlesAtTheVersionItWasHanded() {
+        CapturingTransport fromA = new CapturingTransport(1 << 10);
+        DiseaseSync a = new DiseaseSync(fromA, new Players(), TTL, LOGGER);
+        a.start();
+        CapturingTransport transport = new CapturingTransport(1 << 10);
+        DiseaseSync b = new DiseaseSync(transport, new Players(), TTL, LOGGER);
+        b.start();
+        a.established(player, Map.of());
+        a.infected(player, "cough_cold", 1_000L);
+        a.left(player, Map.of("cough_cold", 1_000L));
+        a.tick(0L);
+        fromA.sent.forEach(transport.receiver);
+        b.tick(0L);
+
+        // Too old to hand off, so the player is loaded from storage
+        assertNull(b.handOff(player, TTL + 1));
+        b.established(player, Map.of());
+        b.tick(TTL + 1);
+
+        List<DiseaseSync.Update> sent = DiseaseSync.decode(transport.sent.get(0));
+        assertEquals(new DiseaseSync.Update(DiseaseSync.Kind.SNAPSHOT, player, 1L, Map.of()), sent.get(0));
+    }
+
+    @Test
+    void aLateHandOffIsNotAppliedUntilTheStateIsSettled() {
+        Players onB = new Players();
+        DiseaseSync a = server(new Players());
+        DiseaseSync b = server(onB);
+
+        // Nothing known yet, so B starts loading from storage
+        assertNull(b.handOff(player, 0L));
+        a.established(player, Map.of());
+        a.infected(player, "poisoning", 1_000L);
+        a.left(player, Map.of("poisoning", 1_000L));
+        a.tick(10L);
+        b.tick(10L);
+
+        assertTrue(onB.isEmpty());
+        assertEquals(Map.of("poisoning", 1_000L), b.handOff(player, 20L));
+    }
+
+    @Test
+    void playersWhoStayAreNotForgotten() {
+        Players onA = new Players();
+        DiseaseSync a = server(onA);
+        DiseaseSync b = server(new Players());
+        onA.put(player, Map.of("cough_cold", 1_000L));
+        a.established(player, Map.of("cough_cold", 1_000L));
+        for (long now = 0; now <= 3 * TTL; now += 1_000L) {
+            a.tick(now);
+            b.tick(now);
+        }
+
+        assertEquals(Map.of("cough_cold", 1_000L), b.handOff(player, 3 * TTL));
+    }
+
+    @Test
+    void playersWhoLeftAreForgottenAfterTheTtl() {
+        DiseaseSync a = server(new Players());
+        DiseaseSync b = server(new Players());
+        a.established(player, Map.of("cough_cold", 1_000L));
+        a.left(player, Map.of("cough_cold", 1_000L));
+        a.tick(0L);
+        b.tick(0L);
+        assertEquals(1, b.remotePlayers());
+
+        assertNull(b.handOff(player, TTL + 1));
+        b.tick(TTL + 1);
+        assertEquals(0, b.remotePlayers());
+    }
+
+    private DiseaseSync server(Players players) {
+        DiseaseSync sync = new DiseaseSync(new LoopbackTransport(network), players, TTL, LOGGER);
+        sync.start();
+        servers.add(sync);
+        return sync;
+    }
+
+    // The diseases of the players on one server, as the plugin would keep them
+    private static final class Players extends HashMap<UUID, Map<String, Long>> implements DiseaseSync.StateSink {
+        @Override
+        public void infected(UUID playerId, String disease, long infectedAt) {
+            computeIfAbsent(playerId, key -> new HashMap<>()).put(disease, infectedAt);
+        }
+
+        @Override
+        public void cured(UUID playerId, String disease) {
+            Map<String, Long> diseases = get(playerId);
+            if (diseases != null) {
+                diseases.remove(disease);
+            }
+        }
+
+        @Override
+        public Map<String, Long> current(UUID playerId) {
+            return Map.copyOf(getOrDefault(playerId, Map.of()));
+        }
+
+        @Override
+        public Map<String, Long> put(UUID playerId, Map<String, Long> diseases) {
+            return super.put(playerId, new HashMap<>(diseases));
+        }
+    }
+
+    private static final class CapturingTransport implements SyncTransport {
+        final List<byte[]> sent = new ArrayList<>();
+        final int maxMessageSize;
+        Consumer<byte[]> receiver;
+
+        CapturingTransport(int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public boolean send(byte[] message) {
+            sent.add(message);
+            return true;
+        }
+
+        @Override
+        public int maxMessageSize() {
+            return maxMessageSize;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
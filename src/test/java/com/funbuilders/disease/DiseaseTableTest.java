@@ -0,0 +1,122 @@
+package com.funbuilders.disease;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiseaseTableTest {
+    @Test
+    void playersSurviveGrowingTheTable() {
+        DiseaseTable table = new DiseaseTable();
+        List<UUID> players = players(1_000);
+        for (int i = 0; i < players.size(); i++) {
+            assertTrue(table.add(players.get(i), i % 3, i));
+        }
+
+        assertEquals(players.size(), table.size());
+        for (int i = 0; i < players.size(); i++) {
+            assertTrue(table.has(players.get(i), i % 3));
+            assertFalse(table.has(players.get(i), (i + 1) % 3));
+            assertEquals(i, table.infectedAt(players.get(i), i % 3));
+        }
+        assertEquals(334, table.count(0));
+    }
+
+    @Test
+    void infectionsSurviveGrowingTheIds() {
+        DiseaseTable table = new DiseaseTable();
+        UUID player = UUID.randomUUID();
+        table.add(player, 63, 63L);
+        table.add(player, 5, 5L);
+        // Needs a second word per entry
+        table.add(player, 130, 130L);
+
+        Map<Integer, Long> infections = new TreeMap<>();
+        table.forEachInfection(player, infections::put);
+        assertEquals(Map.of(5, 5L, 63, 63L, 130, 130L), infections);
+        assertTrue(table.hasAny(new int[] {130}));
+        assertFalse(table.hasAny(new int[] {64, 129}));
+    }
+
+    @Test
+    void removingTheLastDiseaseRemovesThePlayer() {
+        DiseaseTable table = new DiseaseTable();
+        UUID player = UUID.randomUUID();
+        table.add(player, 1, 10L);
+        table.add(player, 2, 20L);
+
+        assertTrue(table.remove(player, 1));
+        assertFalse(table.remove(player, 1));
+        assertEquals(20L, table.infectedAt(player, 2));
+        assertTrue(table.contains(player));
+        assertTrue(table.remove(player, 2));
+        assertFalse(table.contains(player));
+        assertEquals(0, table.size());
+        assertEquals(Long.MIN_VALUE, table.infectedAt(player, 2));
+    }
+
+    // Removals shift later entries of a probe chain back, which must keep every other player reachable
+    @Test
+    void matchesAMapUnderRandomChanges() {
+        DiseaseTable table = new DiseaseTable();
+        Map<UUID, Map<Integer, Long>> expected = new HashMap<>();
+        List<UUID> players = players(200);
+        Random random = new Random(42);
+        for (int step = 0; step < 50_000; step++) {
+            UUID player = players.get(random.nextInt(players.size()));
+            int id = random.nextInt(70);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    long infectedAt = random.nextLong();
+                    boolean added = expected.computeIfAbsent(player, key -> new HashMap<>()).putIfAbsent(id, infectedAt) == null;
+                    assertEquals(added, table.add(player, id, infectedAt));
+                }
+                case 2 -> {
+                    Map<Integer, Long> diseases = expected.get(player);
+                    boolean removed = diseases != null && diseases.remove(id) != null;
+                    if (diseases != null && diseases.isEmpty()) {
+                        expected.remove(player);
+                    }
+                    assertEquals(removed, table.remove(player, id));
+                }
+                default -> {
+                    if (random.nextInt(10) == 0) {
+                        expected.remove(player);
+                        table.removePlayer(player);
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        Set<UUID> stored = new HashSet<>();
+        table.forEachPlayer(stored::add);
+        assertEquals(expected.keySet(), stored);
+        for (UUID player : players) {
+            Map<Integer, Long> infections = new HashMap<>();
+            table.forEachInfection(player, infections::put);
+            assertEquals(expected.getOrDefault(player, Map.of()), infections);
+        }
+    }
+
+    private static List<UUID> players(int count) {
+        Random random = new Random(count);
+        List<UUID> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return players;
+    }
+}